@@ -1,12 +1,14 @@
 package main;
 
 import javax.swing.SwingUtilities;
+import main.ui.IconCache;
 import main.ui.NotionStyleUI;
 import main.db.Database;
 
 public class Main {
     public static void main(String[] args) {
         Database.init();
+        IconCache.warmUp(); // decode shared icons while the first window is built
         SwingUtilities.invokeLater(() -> NotionStyleUI.show());
     }
 }
@@ -0,0 +1,250 @@
+package main.csv;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * RFC 4180 CSV reader shared by the sheet and dashboard loaders.
+ * - Records end in CRLF, LF or a lone CR; quoted fields may contain delimiters, quotes ("")
+ *   and line breaks.
+ * - Lenient where files in the wild are not: text after a closing quote is kept, a quote inside
+ *   an unquoted field is literal, an unterminated quote runs to end of input.
+ * - A blank line is a record with one empty field; a final line break does not start a record.
+ * - Parses straight out of its own char buffer. Fields that fit in the buffer become Strings
+ *   without an intermediate copy, everything else goes through one reused StringBuilder.
+ * open(...) sniffs the charset (BOM, else UTF-8 if the head decodes cleanly, else windows-1252)
+ * and the delimiter (',', ';', tab or '|') from the first 64 KB.
+ */
+public final class CsvReader implements Closeable {
+    private static final int BUFFER_CHARS = 1 << 16;
+    private static final int SNIFF_BYTES = 1 << 16;
+    private static final char[] DELIMITERS = {',', ';', '\t', '|'};
+    private static final String[] NO_FIELDS = new String[0];
+
+    private final Reader in;
+    private final char delimiter;
+    private final Charset charset;
+    private final char[] buf = new char[BUFFER_CHARS];
+    private int pos, lim;
+    private boolean eof;
+    private final StringBuilder field = new StringBuilder(64);
+    private final ArrayList<String> fields = new ArrayList<>();
+    private long records;
+
+    public CsvReader(Reader in) { this(in, ',', null); }
+
+    public CsvReader(Reader in, char delimiter) { this(in, delimiter, null); }
+
+    private CsvReader(Reader in, char delimiter, Charset charset) {
+        this.in = in;
+        this.delimiter = delimiter;
+        this.charset = charset;
+    }
+
+    public static CsvReader forString(String csv) {
+        return new CsvReader(new StringReader(csv == null ? "" : csv));
+    }
+
+    public static CsvReader open(File f) throws IOException {
+        return open(new FileInputStream(f));
+    }
+
+    /** Wraps a byte stream, detecting charset and delimiter from its head. Closing the reader closes the stream. */
+    public static CsvReader open(InputStream raw) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw, SNIFF_BYTES);
+        try {
+            in.mark(SNIFF_BYTES);
+            byte[] head = in.readNBytes(SNIFF_BYTES);
+            in.reset();
+            int bom = bomLength(head);
+            Charset cs = detectCharset(head, bom);
+            in.skipNBytes(bom);
+            String text = new String(head, bom, head.length - bom, cs);
+            return new CsvReader(new InputStreamReader(in, cs), detectDelimiter(text), cs);
+        } catch (IOException | RuntimeException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    public char delimiter() { return delimiter; }
+
+    /** Charset picked by open(...), or null when reading from a Reader. */
+    public Charset charset() { return charset; }
+
+    public long recordsRead() { return records; }
+
+    /** The next record, or null at end of input. */
+    public String[] next() throws IOException {
+        if (pos >= lim && !fill()) return null;
+        fields.clear();
+        while (true) {
+            if (pos >= lim && !fill()) {
+                fields.add(""); // input ended right after a delimiter
+                return record();
+            }
+            if (buf[pos] == '"') {
+                pos++;
+                readQuoted();
+            } else {
+                readPlain();
+            }
+            if (pos >= lim && !fill()) return record();
+            char ch = buf[pos++];
+            if (ch == delimiter) continue;
+            if (ch == '\r' && (pos < lim || fill()) && buf[pos] == '\n') pos++;
+            return record();
+        }
+    }
+
+    private String[] record() {
+        records++;
+        return fields.isEmpty() ? NO_FIELDS : fields.toArray(NO_FIELDS);
+    }
+
+    // Unquoted field: runs to the delimiter, a line break or end of input.
+    private void readPlain() throws IOException {
+        int start = pos;
+        while (true) {
+            while (pos < lim) {
+                char c = buf[pos];
+                if (c == delimiter || c == '\n' || c == '\r') {
+                    if (field.length() == 0) fields.add(new String(buf, start, pos - start));
+                    else { field.append(buf, start, pos - start); fields.add(take()); }
+                    return;
+                }
+                pos++;
+            }
+            field.append(buf, start, pos - start);
+            if (!fill()) { fields.add(take()); return; }
+            start = pos;
+        }
+    }
+
+    // Quoted field, positioned just after the opening quote.
+    private void readQuoted() throws IOException {
+        int start = pos;
+        while (true) {
+            if (pos >= lim) {
+                field.append(buf, start, pos - start);
+                if (!fill()) { fields.add(take()); return; }
+                start = pos;
+            }
+            if (buf[pos] != '"') { pos++; continue; }
+            field.append(buf, start, pos - start);
+            pos++;
+            if (pos >= lim && !fill()) { fields.add(take()); return; }
+            if (buf[pos] == '"') {
+                field.append('"');
+                start = ++pos;
+                continue;
+            }
+            // closing quote; keep anything before the next delimiter or line break
+            start = pos;
+            while (true) {
+                while (pos < lim) {
+                    char c = buf[pos];
+                    if (c == delimiter || c == '\n' || c == '\r') {
+                        field.append(buf, start, pos - start);
+                        fields.add(take());
+                        return;
+                    }
+                    pos++;
+                }
+                field.append(buf, start, pos - start);
+                if (!fill()) { fields.add(take()); return; }
+                start = pos;
+            }
+        }
+    }
+
+    private String take() {
+        String s = field.toString();
+        field.setLength(0);
+        return s;
+    }
+
+    // Refills the whole buffer; callers have consumed everything before pos.
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        int n;
+        do { n = in.read(buf, 0, buf.length); } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            pos = lim = 0;
+            return false;
+        }
+        pos = 0;
+        lim = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    static int bomLength(byte[] b) {
+        if (b.length >= 3 && (b[0] & 0xff) == 0xEF && (b[1] & 0xff) == 0xBB && (b[2] & 0xff) == 0xBF) return 3;
+        if (b.length >= 2 && (((b[0] & 0xff) == 0xFE && (b[1] & 0xff) == 0xFF) || ((b[0] & 0xff) == 0xFF && (b[1] & 0xff) == 0xFE))) return 2;
+        return 0;
+    }
+
+    static Charset detectCharset(byte[] head, int bom) {
+        if (bom == 3) return StandardCharsets.UTF_8;
+        if (bom == 2) return (head[0] & 0xff) == 0xFE ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_16LE;
+        CharsetDecoder dec = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        ByteBuffer bytes = ByteBuffer.wrap(head);
+        CharBuffer out = CharBuffer.allocate(head.length);
+        // endOfInput=false: a multi-byte sequence cut off by the sniff window is not an error
+        if (!dec.decode(bytes, out, false).isError()) return StandardCharsets.UTF_8;
+        try {
+            return Charset.forName("windows-1252");
+        } catch (RuntimeException ex) {
+            return StandardCharsets.ISO_8859_1;
+        }
+    }
+
+    // Picks the candidate that splits the first records into the same, largest number of fields.
+    static char detectDelimiter(String head) {
+        char best = ',';
+        long bestScore = 0;
+        for (char d : DELIMITERS) {
+            int lines = 0, consistent = 0, first = -1, seen = 0;
+            int count = 0;
+            boolean inQuotes = false;
+            for (int i = 0; i < head.length() && lines < 20; i++) {
+                char c = head.charAt(i);
+                if (c == '"') inQuotes = !inQuotes;
+                else if (!inQuotes && c == d) count++;
+                else if (!inQuotes && c == '\n') {
+                    lines++;
+                    if (count > 0) seen++;
+                    if (first < 0) first = count;
+                    if (count == first && count > 0) consistent++;
+                    count = 0;
+                }
+            }
+            if (first < 0) first = count; // single unterminated line
+            long score = consistent == lines && first > 0 ? 1000L * first + lines : Math.max(seen, first > 0 ? 1 : 0);
+            if (score > bestScore) { bestScore = score; best = d; }
+        }
+        return best;
+    }
+}
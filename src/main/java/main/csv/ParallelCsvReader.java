@@ -0,0 +1,221 @@
+package main.csv;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Parses large CSV files on a ForkJoinPool, handing rows back in file order.
+ * 1. The file is cut into fixed windows that are memory-mapped (FileChannel.map) and scanned in
+ *    parallel. The scan runs CsvReader's quoting rules (a quote opens a field only at field start,
+ *    so {@code 5" screen} stays literal) from each of the four states a window can start in, and
+ *    records the end state and the first line feed that ends a record for each.
+ * 2. A sequential pass over those results knows the real state at each window start, so it can
+ *    pick a line feed that really ends a record - quoted line breaks are never split on.
+ * 3. The resulting segments are decoded and parsed with CsvReader in parallel; at most two per
+ *    worker are in flight, and the caller's Sink receives each segment's rows in order.
+ * Byte-level splitting needs an ASCII-compatible charset; UTF-16 files are parsed as one segment.
+ */
+public final class ParallelCsvReader {
+    // small enough that in-flight segments (bytes, text and rows) die young instead of forcing full GCs
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+
+    /** Receives parsed rows in file order; return false to stop reading. */
+    public interface Sink {
+        boolean accept(List<String[]> rows, long bytesDone);
+    }
+
+    private final ForkJoinPool pool;
+    private final int segmentBytes;
+
+    public ParallelCsvReader() { this(ForkJoinPool.commonPool(), DEFAULT_SEGMENT_BYTES); }
+
+    public ParallelCsvReader(ForkJoinPool pool, int segmentBytes) {
+        this.pool = pool;
+        this.segmentBytes = Math.max(1 << 16, segmentBytes);
+    }
+
+    // scanner states: at field start, in an unquoted field (or after a closing quote),
+    // inside quotes, and just after a quote inside quotes (closing, or the first half of "")
+    private static final int FIELD_START = 0, PLAIN = 1, QUOTED = 2, QUOTE_IN_QUOTED = 3, STATES = 4;
+    // byte classes
+    private static final int QUOTE = 0, DELIM = 1, LF = 2, CR = 3, OTHER = 4;
+    // NEXT[state][class], mirroring CsvReader.next(); a LF read outside QUOTED ends a record
+    private static final int[][] NEXT = {
+            /* FIELD_START     */ {QUOTED, FIELD_START, FIELD_START, FIELD_START, PLAIN},
+            /* PLAIN           */ {PLAIN, FIELD_START, FIELD_START, FIELD_START, PLAIN},
+            /* QUOTED          */ {QUOTE_IN_QUOTED, QUOTED, QUOTED, QUOTED, QUOTED},
+            /* QUOTE_IN_QUOTED */ {QUOTED, FIELD_START, FIELD_START, FIELD_START, PLAIN},
+    };
+    // The scan tracks all four start states at once, packed 2 bits each into one byte (bits 2s..2s+1
+    // hold where start state s has got to), so a byte costs one table lookup instead of four.
+    private static final int START_VECTOR = FIELD_START | PLAIN << 2 | QUOTED << 4 | QUOTE_IN_QUOTED << 6;
+    private static final int[] STEP = new int[256 * 5]; // [vector * 5 + class] -> vector
+    private static final int[] BREAKS = new int[256];   // [vector] -> bit s set if a LF there ends a record for s
+    static {
+        for (int v = 0; v < 256; v++) {
+            for (int s = 0; s < STATES; s++) {
+                int st = (v >> (2 * s)) & 3;
+                if (st != QUOTED) BREAKS[v] |= 1 << s;
+                for (int cls = 0; cls < 5; cls++) STEP[v * 5 + cls] |= NEXT[st][cls] << (2 * s);
+            }
+        }
+    }
+
+    // per-window scan result, indexed by the state the window starts in:
+    // the state at its end and the first record-ending '\n' (-1 if none)
+    private static final class Window {
+        final int[] endState;
+        final long[] firstBreak;
+        Window(int[] endState, long[] firstBreak) {
+            this.endState = endState; this.firstBreak = firstBreak;
+        }
+    }
+
+    /** Reads the whole file (or until the sink says stop); returns the number of records delivered. */
+    public long read(File file, Sink sink) throws IOException {
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = ch.size();
+            byte[] head = new byte[(int) Math.min(size, 1 << 16)];
+            map(ch, 0, head.length).get(head);
+            int bom = CsvReader.bomLength(head);
+            Charset cs = CsvReader.detectCharset(head, bom);
+            char delimiter = CsvReader.detectDelimiter(new String(head, bom, head.length - bom, cs));
+
+            List<long[]> segments = new ArrayList<>();
+            if (cs == StandardCharsets.UTF_16BE || cs == StandardCharsets.UTF_16LE || size - bom <= segmentBytes) {
+                segments.add(new long[]{bom, size});
+            } else {
+                segments = split(ch, bom, size, delimiter);
+            }
+
+            long records = 0;
+            ArrayDeque<ForkJoinTask<List<String[]>>> inFlight = new ArrayDeque<>();
+            int window = Math.max(2, pool.getParallelism() * 2);
+            int next = 0, delivered = 0;
+            try {
+                while (delivered < segments.size()) {
+                    while (next < segments.size() && inFlight.size() < window) {
+                        long[] seg = segments.get(next++);
+                        inFlight.add(pool.submit(() -> parse(ch, seg[0], seg[1], cs, delimiter)));
+                    }
+                    List<String[]> rows = inFlight.poll().get();
+                    records += rows.size();
+                    if (!sink.accept(rows, segments.get(delivered++)[1])) break;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted", ie);
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+                throw new IOException(cause);
+            } finally {
+                for (ForkJoinTask<?> t : inFlight) t.cancel(false);
+            }
+            return records;
+        }
+    }
+
+    private List<long[]> split(FileChannel ch, long from, long size, char delimiter) throws IOException {
+        List<ForkJoinTask<Window>> scans = new ArrayList<>();
+        for (long s = from; s < size; s += segmentBytes) {
+            long start = s, end = Math.min(size, s + segmentBytes);
+            scans.add(pool.submit(() -> scan(ch, start, end, (byte) delimiter)));
+        }
+        List<long[]> segments = new ArrayList<>();
+        long segStart = from;
+        int state = FIELD_START;
+        try {
+            for (int i = 0; i < scans.size(); i++) {
+                Window w = scans.get(i).get();
+                if (i > 0) {
+                    long nl = w.firstBreak[state];
+                    if (nl >= 0 && nl + 1 > segStart) {
+                        segments.add(new long[]{segStart, nl + 1});
+                        segStart = nl + 1;
+                    }
+                }
+                state = w.endState[state];
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted", ie);
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+        if (segStart < size) segments.add(new long[]{segStart, size});
+        return segments;
+    }
+
+    // bulk copies out of the mapping: per-byte get(i) on a MappedByteBuffer is several times slower
+    // the delimiter is ASCII, so with an ASCII-compatible charset its byte never occurs inside a character
+    private static Window scan(FileChannel ch, long start, long end, byte delimiter) {
+        MappedByteBuffer buf = map(ch, start, end - start);
+        byte[] block = new byte[1 << 16];
+        int[] classOf = new int[256];
+        Arrays.fill(classOf, OTHER);
+        classOf['"'] = QUOTE;
+        classOf[delimiter & 0xff] = DELIM;
+        classOf['\n'] = LF;
+        classOf['\r'] = CR;
+        long[] first = {-1, -1, -1, -1};
+        int vector = START_VECTOR;
+        int open = (1 << STATES) - 1; // start states still without a record break
+        long offset = start;
+        while (buf.hasRemaining()) {
+            int n = Math.min(block.length, buf.remaining());
+            buf.get(block, 0, n);
+            for (int i = 0; i < n; i++) {
+                int cls = classOf[block[i] & 0xff];
+                if (cls == LF && (BREAKS[vector] & open) != 0) {
+                    int hit = BREAKS[vector] & open;
+                    for (int s = 0; s < STATES; s++) if ((hit & (1 << s)) != 0) first[s] = offset + i;
+                    open &= ~hit;
+                }
+                vector = STEP[vector * 5 + cls];
+            }
+            offset += n;
+        }
+        int[] state = new int[STATES];
+        for (int s = 0; s < STATES; s++) state[s] = (vector >> (2 * s)) & 3;
+        return new Window(state, first);
+    }
+
+    private static List<String[]> parse(FileChannel ch, long start, long end, Charset cs, char delimiter) {
+        // decode from a heap copy: String's decoder has fast paths that direct buffers never hit
+        byte[] bytes = new byte[(int) (end - start)];
+        map(ch, start, end - start).get(bytes);
+        String text = new String(bytes, cs);
+        bytes = null;
+        List<String[]> rows = new ArrayList<>();
+        try (CsvReader r = new CsvReader(new StringReader(text), delimiter)) {
+            String[] rec;
+            while ((rec = r.next()) != null) rows.add(rec);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return rows;
+    }
+
+    private static MappedByteBuffer map(FileChannel ch, long start, long length) {
+        try {
+            return ch.map(FileChannel.MapMode.READ_ONLY, start, length);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package main.db;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public final class CardDAO {
     public static int insert(String title, int x, int y, int w, int h, String content) {
@@ -21,7 +22,7 @@ public final class CardDAO {
 
     public static List<CardRecord> listAll() {
         List<CardRecord> out = new ArrayList<>();
-        try (Connection c = Database.getConnection();
+        try (Connection c = Database.getReadConnection();
              Statement s = c.createStatement();
              ResultSet rs = s.executeQuery("SELECT id,title,x,y,w,h,content FROM cards ORDER BY updated_at DESC")) {
             while (rs.next()) out.add(new CardRecord(
@@ -31,6 +32,22 @@ public final class CardDAO {
         return out;
     }
 
+    // Keyset-paginated / streaming variant of listAll (same updated_at DESC ordering, id breaks ties)
+    private static KeysetQuery<CardRecord> allQuery() {
+        return new KeysetQuery<>("SELECT id,title,x,y,w,h,content,updated_at FROM cards WHERE 1 = 1",
+                new Object[0], new String[]{"updated_at", "id"}, true, rs -> new CardRecord(
+                rs.getInt("id"), rs.getString("title"),
+                rs.getInt("x"), rs.getInt("y"), rs.getInt("w"), rs.getInt("h"), rs.getString("content")));
+    }
+
+    public static Page<CardRecord> pageAll(Page.Cursor after, int pageSize) {
+        try { return allQuery().page(after, pageSize); } catch (Exception e) { e.printStackTrace(); return Page.empty(); }
+    }
+
+    public static Stream<CardRecord> streamAll() {
+        return allQuery().stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
     public static class CardRecord {
         public final int id; public final String title; public final int x,y,w,h; public final String content;
         public CardRecord(int id, String title,int x,int y,int w,int h,String content) {
@@ -3,6 +3,7 @@ package main.db;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public final class ClientDAO {
     private ClientDAO() {}
@@ -19,7 +20,7 @@ public final class ClientDAO {
     public static List<Client> listAll() {
         List<Client> out = new ArrayList<>();
         String q = "SELECT id, name, company, email, phone, created_at, updated_at FROM clients ORDER BY name";
-        try (Connection c = Database.getConnection(); PreparedStatement ps = c.prepareStatement(q); ResultSet rs = ps.executeQuery()) {
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q); ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 out.add(new Client(
                         rs.getInt("id"), rs.getString("name"), rs.getString("company"), rs.getString("email"), rs.getString("phone"), rs.getLong("created_at"), rs.getLong("updated_at")
@@ -31,6 +32,21 @@ public final class ClientDAO {
         return out;
     }
 
+    // Keyset-paginated / streaming variant of listAll (same name ordering, id breaks ties)
+    private static KeysetQuery<Client> allQuery() {
+        return new KeysetQuery<>("SELECT id, name, company, email, phone, created_at, updated_at FROM clients WHERE 1 = 1",
+                new Object[0], new String[]{"name", "id"}, false, rs -> new Client(
+                rs.getInt("id"), rs.getString("name"), rs.getString("company"), rs.getString("email"), rs.getString("phone"), rs.getLong("created_at"), rs.getLong("updated_at")));
+    }
+
+    public static Page<Client> pageAll(Page.Cursor after, int pageSize) {
+        try { return allQuery().page(after, pageSize); } catch (Exception ex) { ex.printStackTrace(); return Page.empty(); }
+    }
+
+    public static Stream<Client> streamAll() {
+        return allQuery().stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
     public static int insert(String name, String company, String email, String phone) {
         String sql = "INSERT INTO clients(name,company,email,phone,created_at) VALUES(?,?,?,?,?)";
         long now = System.currentTimeMillis();
@@ -0,0 +1,325 @@
+package main.db;
+
+import org.sqlite.SQLiteConfig;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded pool of long-lived SQLite connections: one writer plus up to N read-only readers.
+ * - The writer is re-entrant per thread, so DAO methods that call other DAO methods
+ *   while holding a connection (e.g. SheetDAO.updateSheet -> setLastSheetId) do not deadlock.
+ * - Handed-out connections are proxies; close() returns them to the pool.
+ * - Idle readers are closed by a background evictor after idleTimeoutMillis.
+ */
+public final class ConnectionPool {
+
+    public static final class Config {
+        public final int maxReaders;
+        public final long idleTimeoutMillis;
+        public final long acquireTimeoutMillis;
+
+        public Config(int maxReaders, long idleTimeoutMillis, long acquireTimeoutMillis) {
+            this.maxReaders = Math.max(1, maxReaders);
+            this.idleTimeoutMillis = Math.max(1000L, idleTimeoutMillis);
+            this.acquireTimeoutMillis = Math.max(0L, acquireTimeoutMillis);
+        }
+
+        // -Dsolflow.db.readers=4 -Dsolflow.db.idleTimeoutMs=60000 -Dsolflow.db.acquireTimeoutMs=30000
+        public static Config fromSystemProperties() {
+            int defReaders = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            return new Config(
+                    Integer.getInteger("solflow.db.readers", defReaders),
+                    Long.getLong("solflow.db.idleTimeoutMs", 60_000L),
+                    Long.getLong("solflow.db.acquireTimeoutMs", 30_000L));
+        }
+    }
+
+    /** Point-in-time snapshot of pool counters. */
+    public static final class Stats {
+        public final int maxReaders, openReaders, idleReaders, busyReaders;
+        public final boolean writerBusy;
+        public final long writeAcquires, readAcquires, connectionsCreated, connectionsEvicted, timeouts;
+        public final long totalWaitMillis;
+
+        Stats(int maxReaders, int openReaders, int idleReaders, boolean writerBusy, long writeAcquires, long readAcquires,
+              long connectionsCreated, long connectionsEvicted, long timeouts, long totalWaitMillis) {
+            this.maxReaders = maxReaders; this.openReaders = openReaders; this.idleReaders = idleReaders;
+            this.busyReaders = Math.max(0, openReaders - idleReaders); this.writerBusy = writerBusy;
+            this.writeAcquires = writeAcquires; this.readAcquires = readAcquires;
+            this.connectionsCreated = connectionsCreated; this.connectionsEvicted = connectionsEvicted;
+            this.timeouts = timeouts; this.totalWaitMillis = totalWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "readers=" + busyReaders + "/" + openReaders + " open (max " + maxReaders + ", idle " + idleReaders + ")"
+                    + ", writerBusy=" + writerBusy
+                    + ", acquires(w/r)=" + writeAcquires + "/" + readAcquires
+                    + ", created=" + connectionsCreated + ", evicted=" + connectionsEvicted
+                    + ", timeouts=" + timeouts + ", waitMs=" + totalWaitMillis;
+        }
+    }
+
+    private static final class IdleReader {
+        final Connection conn;
+        final long since;
+        IdleReader(Connection conn, long since) { this.conn = conn; this.since = since; }
+    }
+
+    private final String url;
+    private final Config config;
+    private final PragmaProfile pragmas;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Connection writer; // guarded by writeLock
+
+    private final Semaphore readPermits;
+    // most recently returned first, so the tail is what goes idle and gets evicted
+    private final ConcurrentLinkedDeque<IdleReader> idleReaders = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger openReaders = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private final LongAdder writeAcquires = new LongAdder();
+    private final LongAdder readAcquires = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    ConnectionPool(String url, Config config, PragmaProfile pragmas) {
+        this.url = url;
+        this.config = config;
+        this.pragmas = pragmas;
+        this.readPermits = new Semaphore(config.maxReaders, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SolFlow-db-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, config.idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Config config() { return config; }
+
+    public PragmaProfile pragmas() { return pragmas; }
+
+    Connection acquireWriter() throws SQLException {
+        ensureOpen();
+        long t0 = System.nanoTime();
+        try {
+            if (!writeLock.tryLock(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out waiting for the database writer connection");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for the database writer connection", ie);
+        }
+        waitNanos.add(System.nanoTime() - t0);
+        return lockedWriter();
+    }
+
+    // Writer if it is free right now, otherwise null. Used by background maintenance.
+    Connection tryAcquireWriter() throws SQLException {
+        ensureOpen();
+        if (!writeLock.tryLock()) return null;
+        return lockedWriter();
+    }
+
+    // caller holds writeLock; releases it again if the writer can't be opened
+    private Connection lockedWriter() throws SQLException {
+        try {
+            if (writer == null || writer.isClosed()) {
+                writer = open(false);
+            }
+            writeAcquires.increment();
+            return wrap(writer, this::releaseWriter);
+        } catch (SQLException | RuntimeException ex) {
+            writeLock.unlock();
+            throw ex;
+        }
+    }
+
+    Connection acquireReader() throws SQLException {
+        ensureOpen();
+        long t0 = System.nanoTime();
+        try {
+            if (!readPermits.tryAcquire(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLException("Timed out waiting for a database reader connection");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database reader connection", ie);
+        }
+        waitNanos.add(System.nanoTime() - t0);
+        try {
+            Connection raw = null;
+            IdleReader idle;
+            while (raw == null && (idle = idleReaders.pollFirst()) != null) {
+                if (!idle.conn.isClosed()) raw = idle.conn;
+                else openReaders.decrementAndGet();
+            }
+            if (raw == null) {
+                raw = open(true);
+                openReaders.incrementAndGet();
+            }
+            readAcquires.increment();
+            return wrap(raw, this::releaseReader);
+        } catch (SQLException | RuntimeException ex) {
+            readPermits.release();
+            throw ex;
+        }
+    }
+
+    private void releaseWriter(Connection raw) {
+        try {
+            // only the outermost close resets state; inner closes must not roll back the caller's transaction
+            if (writeLock.getHoldCount() == 1 && !reset(raw)) {
+                closeQuietly(raw);
+                writer = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void releaseReader(Connection raw) {
+        try {
+            if (closed || !reset(raw)) {
+                closeQuietly(raw);
+                openReaders.decrementAndGet();
+            } else {
+                idleReaders.offerFirst(new IdleReader(raw, System.currentTimeMillis()));
+            }
+        } finally {
+            readPermits.release();
+        }
+    }
+
+    private static boolean reset(Connection raw) {
+        try {
+            if (raw.isClosed()) return false;
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - config.idleTimeoutMillis;
+        for (Iterator<IdleReader> it = idleReaders.descendingIterator(); it.hasNext(); ) {
+            IdleReader idle = it.next();
+            if (idle.since > cutoff) break;
+            if (idleReaders.removeLastOccurrence(idle)) {
+                closeQuietly(idle.conn);
+                openReaders.decrementAndGet();
+                evicted.increment();
+            }
+        }
+    }
+
+    private Connection open(boolean readOnly) throws SQLException {
+        SQLiteConfig cfg = new SQLiteConfig();
+        cfg.setReadOnly(readOnly);
+        Connection c = DriverManager.getConnection(url, cfg.toProperties());
+        try {
+            pragmas.apply(c, !readOnly);
+        } catch (SQLException ex) {
+            closeQuietly(c);
+            throw ex;
+        }
+        created.increment();
+        return c;
+    }
+
+    private Connection wrap(Connection raw, Consumer<Connection> release) {
+        AtomicBoolean returned = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (returned.compareAndSet(false, true)) release.accept(raw);
+                            return null;
+                        case "isClosed":
+                            return returned.get() || raw.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled[" + raw + "]";
+                        default:
+                            if (returned.get()) throw new SQLException("Connection has already been returned to the pool");
+                            try {
+                                return method.invoke(raw, args);
+                            } catch (InvocationTargetException ite) {
+                                throw ite.getCause();
+                            }
+                    }
+                });
+    }
+
+    public Stats stats() {
+        return new Stats(config.maxReaders, openReaders.get(), idleReaders.size(), writeLock.isLocked(),
+                writeAcquires.sum(), readAcquires.sum(), created.sum(), evicted.sum(), timeouts.sum(),
+                TimeUnit.NANOSECONDS.toMillis(waitNanos.sum()));
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed");
+    }
+
+    void close() {
+        closed = true;
+        evictor.shutdownNow();
+        IdleReader idle;
+        while ((idle = idleReaders.pollFirst()) != null) {
+            closeQuietly(idle.conn);
+            openReaders.decrementAndGet();
+        }
+        // wait for in-flight writes to finish before closing the writer
+        boolean locked = false;
+        try {
+            locked = writeLock.tryLock(config.acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (!locked) {
+            // still in use by another thread: closing it now would break that write mid-way
+            System.err.println("[SolFlow] writer connection still busy at shutdown; leaving it to its holder");
+            return;
+        }
+        try {
+            if (writer != null) closeQuietly(writer);
+            writer = null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static void closeQuietly(Connection c) {
+        try { c.close(); } catch (SQLException ignored) {}
+    }
+}
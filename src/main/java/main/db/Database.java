@@ -2,117 +2,133 @@ package main.db;
 
 import java.sql.*;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class Database {
     private static final String DB_NAME = "SolFlow.db";
-    private static final String URL = "jdbc:sqlite:" + System.getProperty("user.dir") + File.separator + DB_NAME;
+    // -Dsolflow.db.path=/path/to/SolFlow.db (the tests point this into target/)
+    private static final String URL = "jdbc:sqlite:" + System.getProperty("solflow.db.path",
+            System.getProperty("user.dir") + File.separator + DB_NAME);
 
-    public static Connection getConnection() throws SQLException {
+    private static volatile ConnectionPool pool;
+    private static WalCheckpointer checkpointer; // guarded by Database.class
+    private static boolean shutdownHookInstalled;
+
+    static {
         try {
             Class.forName("org.sqlite.JDBC");
         } catch (ClassNotFoundException ignored) {}
-        return DriverManager.getConnection(URL);
     }
 
-    public static void init() {
-        try (Connection c = getConnection(); Statement s = c.createStatement()) {
-        s.execute("PRAGMA foreign_keys = ON;");
-    // create users table
-    s.execute("CREATE TABLE IF NOT EXISTS users (" +
-        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-        "username TEXT NOT NULL UNIQUE, " +
-        "password_hash TEXT NOT NULL, " +
-        "salt TEXT NOT NULL, " +
-        "created_at INTEGER)");
-        s.execute("CREATE TABLE IF NOT EXISTS files (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "path TEXT NOT NULL UNIQUE, " +
-            "name TEXT, size INTEGER, mtime INTEGER, added_at INTEGER)");
-            s.execute("CREATE TABLE IF NOT EXISTS sheets (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "name TEXT UNIQUE, csv TEXT, updated_at INTEGER)");
-            s.execute("CREATE TABLE IF NOT EXISTS settings (" +
-                    "key TEXT PRIMARY KEY, value TEXT)");
-            s.execute("CREATE TABLE IF NOT EXISTS workflows (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "name TEXT NOT NULL, " +
-            "created_at INTEGER, " +
-            "updated_at INTEGER, " +
-            "template INTEGER DEFAULT 0, " +
-            "user_id INTEGER DEFAULT 0)");
-            s.execute("CREATE TABLE IF NOT EXISTS tasks (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "text TEXT NOT NULL, " +
-                    "checked INTEGER DEFAULT 0, " +
-                    "ord INTEGER DEFAULT 0, " +
-                    "updated_at INTEGER)");
-            // Ensure schema has workflow scoping columns for backwards compatibility
-            try {
-                // add workflow_id to tasks if missing
-                s.execute("ALTER TABLE tasks ADD COLUMN workflow_id INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
-            try {
-                // add created_at to tasks if missing (epoch seconds)
-                s.execute("ALTER TABLE tasks ADD COLUMN created_at INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
-            try {
-                // add last_reminder_sent to tasks if missing (epoch seconds)
-                s.execute("ALTER TABLE tasks ADD COLUMN last_reminder_sent INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
-            try {
-                // add per-task reminder window (hours). 0 == use global setting
-                s.execute("ALTER TABLE tasks ADD COLUMN reminder_window_hours INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
-            try {
-                // add per-task reminder window (minutes). 0 == use global setting
-                s.execute("ALTER TABLE tasks ADD COLUMN reminder_window_minutes INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
-            try {
-                // add workflow_id to files if missing
-                s.execute("ALTER TABLE files ADD COLUMN workflow_id INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
-            try {
-                // add user_id to workflows if missing
-                s.execute("ALTER TABLE workflows ADD COLUMN user_id INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
+    private static ConnectionPool pool() {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (Database.class) {
+                p = pool;
+                if (p == null) {
+                    PragmaProfile pragmas = PragmaProfile.fromSystemProperties();
+                    p = new ConnectionPool(URL, ConnectionPool.Config.fromSystemProperties(), pragmas);
+                    pool = p;
+                    long checkpointMs = Long.getLong("solflow.db.checkpointIntervalMs", 30_000L);
+                    if (pragmas.isWal() && checkpointMs > 0) {
+                        checkpointer = new WalCheckpointer(p, checkpointMs);
+                        checkpointer.start();
+                    }
+                    if (!shutdownHookInstalled) {
+                        shutdownHookInstalled = true;
+                        Runtime.getRuntime().addShutdownHook(new Thread(Database::shutdown, "SolFlow-db-shutdown"));
+                    }
+                }
+            }
+        }
+        return p;
+    }
+
+    // Pooled writer connection (re-entrant per thread). close() hands it back to the pool.
+    public static Connection getConnection() throws SQLException {
+        return pool().acquireWriter();
+    }
+
+    // Pooled read-only connection for queries. close() hands it back to the pool.
+    public static Connection getReadConnection() throws SQLException {
+        return pool().acquireReader();
+    }
+
+    public interface SqlWork<T> {
+        T run(Connection c) throws SQLException;
+    }
+
+    // callbacks registered while the current thread is inside inTransaction(...)
+    private static final ThreadLocal<List<Runnable>> AFTER_COMMIT = new ThreadLocal<>();
+
+    // Runs work on the writer inside a single transaction. When the calling thread is already
+    // inside one (the writer is re-entrant), work joins it and the outer caller commits.
+    public static <T> T inTransaction(SqlWork<T> work) throws SQLException {
+        List<Runnable> callbacks = new ArrayList<>();
+        T result;
+        try (Connection c = getConnection()) {
+            if (!c.getAutoCommit()) return work.run(c);
+            c.setAutoCommit(false);
+            AFTER_COMMIT.set(callbacks);
             try {
-                // add user_id to files if missing
-                s.execute("ALTER TABLE files ADD COLUMN user_id INTEGER DEFAULT 0");
-            } catch (SQLException ignored) {}
-            s.execute("CREATE TABLE IF NOT EXISTS cards (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                    "title TEXT, x INTEGER, y INTEGER, w INTEGER, h INTEGER, content TEXT, updated_at INTEGER)");
-        // Sales / CRM tables
-        s.execute("CREATE TABLE IF NOT EXISTS clients (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "name TEXT NOT NULL, " +
-            "company TEXT, " +
-            "email TEXT, " +
-            "phone TEXT, " +
-            "created_at INTEGER, " +
-            "updated_at INTEGER)");
+                result = work.run(c);
+                c.commit();
+            } catch (SQLException | RuntimeException ex) {
+                c.rollback();
+                throw ex;
+            } finally {
+                AFTER_COMMIT.remove();
+                c.setAutoCommit(true);
+            }
+        }
+        // run after the writer is released so callbacks may use the database themselves
+        for (Runnable r : callbacks) {
+            try { r.run(); } catch (RuntimeException ex) { ex.printStackTrace(); }
+        }
+        return result;
+    }
+
+    // Runs r once the surrounding inTransaction(...) commits (dropped on rollback),
+    // or right away when the calling thread isn't inside one.
+    public static void afterCommit(Runnable r) {
+        List<Runnable> callbacks = AFTER_COMMIT.get();
+        if (callbacks != null) callbacks.add(r);
+        else r.run();
+    }
+
+    public static ConnectionPool.Stats poolStats() {
+        return pool().stats();
+    }
+
+    // null when not running in WAL mode
+    public static synchronized WalCheckpointer checkpointer() {
+        return checkpointer;
+    }
 
-        s.execute("CREATE TABLE IF NOT EXISTS opportunities (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "client_id INTEGER, " +
-            "title TEXT NOT NULL, " +
-            "value REAL DEFAULT 0, " +
-            "status TEXT DEFAULT 'prospect', " +
-            "stage TEXT DEFAULT 'in_progress', " +
-            "owner_id INTEGER DEFAULT 0, " +
-            "created_at INTEGER, " +
-            "updated_at INTEGER, " +
-            "workflow_id INTEGER DEFAULT 0)");
+    public static void shutdown() {
+        // drain queued task writes first, while the pool they go through is still live
+        TaskWriteQueue.shutdownIfStarted();
+        ConnectionPool p;
+        WalCheckpointer cp;
+        synchronized (Database.class) {
+            p = pool;
+            cp = checkpointer;
+            pool = null;
+            checkpointer = null;
+        }
+        if (cp != null) cp.stop();
+        if (p != null) p.close();
+    }
 
-        s.execute("CREATE TABLE IF NOT EXISTS interactions (" +
-            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-            "opportunity_id INTEGER, " +
-            "kind TEXT, " +
-            "note TEXT, " +
-            "when_ts INTEGER, " +
-            "created_at INTEGER)");
+    // Brings the schema up to date; a no-op apart from one user_version read on a warm start.
+    public static void init() {
+        // connection-level PRAGMAs (WAL, foreign_keys, ...) are applied by the pool, see PragmaProfile
+        try (Connection c = getConnection()) {
+            SchemaMigrations.migrate(c);
         } catch (SQLException ex) {
             ex.printStackTrace();
         }
+        QueryPlanCheck.run();
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,19 @@
 package main.db;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public final class FileDAO {
     // legacy: insert/update without workflow scope (workflow_id = 0)
@@ -28,16 +38,121 @@ public final class FileDAO {
         } catch (Exception e) { e.printStackTrace(); }
     }
 
+    /** Progress of insertOrUpdateAll, reported from the calling thread with done never going down. */
+    public interface Progress {
+        void update(int done, int total);
+
+        // polled between chunks of files; once true nothing is written
+        default boolean isCancelled() { return false; }
+    }
+
+    /** Outcome of insertOrUpdateAll: files now in the table, and why the others are not. */
+    public static final class BatchResult {
+        public final List<File> registered;
+        public final Map<File, String> failures;
+        public final boolean cancelled; // stopped before writing; registered and failures are empty
+        BatchResult(List<File> registered, Map<File, String> failures, boolean cancelled) {
+            this.registered = Collections.unmodifiableList(registered);
+            this.failures = Collections.unmodifiableMap(failures);
+            this.cancelled = cancelled;
+        }
+    }
+
+    // files statted in parallel between two progress reports / cancellation checks
+    private static final int STAT_CHUNK = 256;
+
+    private static final class Stat {
+        final File file;
+        final long size, mtime;
+        final String error; // null when the stat succeeded
+        Stat(File file, long size, long mtime, String error) {
+            this.file = file; this.size = size; this.mtime = mtime; this.error = error;
+        }
+    }
+
+    public static BatchResult insertOrUpdateAll(Collection<File> files, int workflowId) {
+        return insertOrUpdateAll(files, workflowId, null);
+    }
+
+    /**
+     * Registers many files at once; blocking, so call it off the EDT. Sizes and mtimes are
+     * read in parallel (one attribute read per file), STAT_CHUNK files at a time with progress
+     * reported and cancellation checked after each chunk, then every file that could be read is
+     * upserted in a single transaction. A missing or unreadable file is reported in failures;
+     * if the write itself fails, all files are reported with its error.
+     */
+    public static BatchResult insertOrUpdateAll(Collection<File> files, int workflowId, Progress progress) {
+        List<File> registered = new ArrayList<>();
+        Map<File, String> failures = new LinkedHashMap<>();
+        if (files == null || files.isEmpty()) return new BatchResult(registered, failures, false);
+        List<File> all = new ArrayList<>(files);
+        int total = all.size();
+        List<Stat> stats = new ArrayList<>(total);
+        for (int from = 0; from < total; from += STAT_CHUNK) {
+            if (progress != null && progress.isCancelled()) return new BatchResult(registered, failures, true);
+            List<File> chunk = all.subList(from, Math.min(total, from + STAT_CHUNK));
+            stats.addAll(chunk.parallelStream().map(FileDAO::stat).collect(Collectors.toList()));
+            if (progress != null) progress.update(stats.size(), total);
+        }
+        if (progress != null && progress.isCancelled()) return new BatchResult(registered, failures, true);
+
+        List<Stat> ok = new ArrayList<>(stats.size());
+        for (Stat s : stats) {
+            if (s.error == null) ok.add(s);
+            else failures.put(s.file, s.error);
+        }
+        if (ok.isEmpty()) return new BatchResult(registered, failures, false);
+        long now = System.currentTimeMillis();
+        String sql = "INSERT INTO files (path,name,size,mtime,added_at,workflow_id) VALUES(?,?,?,?,?,?) " +
+                "ON CONFLICT(path) DO UPDATE SET name=excluded.name,size=excluded.size,mtime=excluded.mtime, workflow_id=excluded.workflow_id";
+        try {
+            Database.inTransaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (Stat s : ok) {
+                        ps.setString(1, s.file.getAbsolutePath());
+                        ps.setString(2, s.file.getName());
+                        ps.setLong(3, s.size);
+                        ps.setLong(4, s.mtime);
+                        ps.setLong(5, now);
+                        ps.setInt(6, workflowId);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                return null;
+            });
+            for (Stat s : ok) registered.add(s.file);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            for (Stat s : ok) failures.put(s.file, "database error: " + e.getMessage());
+        }
+        return new BatchResult(registered, failures, false);
+    }
+
+    private static Stat stat(File f) {
+        try {
+            BasicFileAttributes a = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+            if (!a.isRegularFile()) return new Stat(f, 0, 0, "not a regular file");
+            return new Stat(f, a.size(), a.lastModifiedTime().toMillis(), null);
+        } catch (NoSuchFileException e) {
+            return new Stat(f, 0, 0, "file not found");
+        } catch (IOException | RuntimeException e) {
+            return new Stat(f, 0, 0, e.getMessage() == null ? e.toString() : e.getMessage());
+        }
+    }
+
     // legacy: list all files regardless of workflow
     public static List<File> listAll() {
         return listForWorkflow(0);
     }
 
+    static final String SQL_LIST_FOR_WORKFLOW = "SELECT path FROM files WHERE workflow_id = ? ORDER BY added_at DESC";
+
     // list files for a given workflow (workflowId==0 -> global files)
     public static List<File> listForWorkflow(int workflowId) {
         List<File> out = new ArrayList<>();
-        String q = "SELECT path FROM files WHERE workflow_id = ? ORDER BY added_at DESC";
-        try (Connection c = Database.getConnection(); PreparedStatement ps = c.prepareStatement(q)) {
+        String q = SQL_LIST_FOR_WORKFLOW;
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q)) {
             ps.setInt(1, workflowId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) out.add(new File(rs.getString("path")));
@@ -46,6 +161,20 @@ public final class FileDAO {
         return out;
     }
 
+    // Keyset-paginated / streaming variant of listForWorkflow (same added_at DESC ordering, id breaks ties)
+    private static KeysetQuery<File> workflowQuery(int workflowId) {
+        return new KeysetQuery<>("SELECT id, path, added_at FROM files WHERE workflow_id = ?",
+                new Object[]{workflowId}, new String[]{"added_at", "id"}, true, rs -> new File(rs.getString("path")));
+    }
+
+    public static Page<File> pageForWorkflow(int workflowId, Page.Cursor after, int pageSize) {
+        try { return workflowQuery(workflowId).page(after, pageSize); } catch (Exception e) { e.printStackTrace(); return Page.empty(); }
+    }
+
+    public static Stream<File> streamForWorkflow(int workflowId) {
+        return workflowQuery(workflowId).stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
     public static void deleteByPath(String path) {
         try (Connection c = Database.getConnection();
              PreparedStatement ps = c.prepareStatement("DELETE FROM files WHERE path = ?")) {
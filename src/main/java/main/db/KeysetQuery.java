@@ -0,0 +1,106 @@
+package main.db;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Keyset (seek) pagination over a DAO query. Instead of OFFSET, each page continues after the
+ * sort-key values of the previous page's last row - WHERE (k1, k2) > (?, ?) - so every page is
+ * an index range scan no matter how deep it is. Every page uses its own short-lived read
+ * connection, so nothing stays open between pages.
+ * The sort keys must be unique together (end with the id) and appear in the select list.
+ */
+final class KeysetQuery<T> {
+    static final int DEFAULT_PAGE_SIZE = 500;
+
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private final String select;     // "SELECT ... FROM t WHERE <filter>"
+    private final Object[] args;     // parameters of the filter
+    private final String[] keys;     // sort columns, e.g. {"ord", "id"}
+    private final boolean descending;
+    private final RowMapper<T> mapper;
+
+    KeysetQuery(String select, Object[] args, String[] keys, boolean descending, RowMapper<T> mapper) {
+        this.select = select;
+        this.args = args;
+        this.keys = keys;
+        this.descending = descending;
+        this.mapper = mapper;
+    }
+
+    Page<T> page(Page.Cursor after, int pageSize) throws SQLException {
+        int size = pageSize > 0 ? pageSize : DEFAULT_PAGE_SIZE;
+        String dir = descending ? " DESC" : " ASC";
+        StringBuilder q = new StringBuilder(select);
+        if (after != null) {
+            q.append(" AND (").append(String.join(", ", keys)).append(descending ? ") < (" : ") > (");
+            for (int i = 0; i < keys.length; i++) q.append(i == 0 ? "?" : ", ?");
+            q.append(')');
+        }
+        q.append(" ORDER BY ");
+        for (int i = 0; i < keys.length; i++) q.append(i == 0 ? "" : ", ").append(keys[i]).append(dir);
+        q.append(" LIMIT ?");
+
+        List<T> items = new ArrayList<>(Math.min(size, 1024));
+        Object[] last = null;
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q.toString())) {
+            int p = 1;
+            for (Object a : args) ps.setObject(p++, a);
+            if (after != null) for (Object k : after.keys) ps.setObject(p++, k);
+            ps.setInt(p, size);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    items.add(mapper.map(rs));
+                    if (items.size() == size) {
+                        last = new Object[keys.length];
+                        for (int i = 0; i < keys.length; i++) last[i] = rs.getObject(keys[i]);
+                    }
+                }
+            }
+        }
+        // a full page may or may not be the last one; the next call simply comes back empty
+        return new Page<>(items, last == null ? null : new Page.Cursor(last));
+    }
+
+    /** Lazily pages through the whole listing; at most one page is held in memory. */
+    Stream<T> stream(int pageSize) {
+        Iterator<T> it = new Iterator<T>() {
+            private Iterator<T> current = List.<T>of().iterator();
+            private Page.Cursor cursor;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && !done) {
+                    try {
+                        Page<T> page = page(cursor, pageSize);
+                        current = page.items.iterator();
+                        cursor = page.next;
+                        done = cursor == null;
+                    } catch (SQLException ex) {
+                        ex.printStackTrace();
+                        done = true;
+                    }
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(it, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+}
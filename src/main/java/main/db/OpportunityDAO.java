@@ -3,6 +3,7 @@ package main.db;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public final class OpportunityDAO {
     private OpportunityDAO() {}
@@ -24,7 +25,7 @@ public final class OpportunityDAO {
     public static List<Opp> listAll() {
         List<Opp> out = new ArrayList<>();
         String q = "SELECT id, client_id, title, value, status, stage, created_at, updated_at FROM opportunities ORDER BY updated_at DESC";
-        try (Connection c = Database.getConnection(); PreparedStatement ps = c.prepareStatement(q); ResultSet rs = ps.executeQuery()) {
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q); ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
                 out.add(new Opp(rs.getInt("id"), rs.getInt("client_id"), rs.getString("title"), rs.getDouble("value"), rs.getString("status"), rs.getString("stage"), rs.getLong("created_at"), rs.getLong("updated_at")));
             }
@@ -32,8 +33,83 @@ public final class OpportunityDAO {
         return out;
     }
 
+    // Keyset-paginated / streaming variant of listAll (same updated_at DESC ordering, id breaks ties)
+    private static KeysetQuery<Opp> allQuery() {
+        return new KeysetQuery<>("SELECT id, client_id, title, value, status, stage, created_at, updated_at FROM opportunities WHERE 1 = 1",
+                new Object[0], new String[]{"updated_at", "id"}, true, rs -> new Opp(
+                rs.getInt("id"), rs.getInt("client_id"), rs.getString("title"), rs.getDouble("value"), rs.getString("status"), rs.getString("stage"), rs.getLong("created_at"), rs.getLong("updated_at")));
+    }
+
+    public static Page<Opp> pageAll(Page.Cursor after, int pageSize) {
+        try { return allQuery().page(after, pageSize); } catch (Exception ex) { ex.printStackTrace(); return Page.empty(); }
+    }
+
+    public static Stream<Opp> streamAll() {
+        return allQuery().stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
+    /** One pipeline line: an opportunity joined with its client (client fields are null when missing). */
+    public static class PipelineRow {
+        public final int id, clientId, ownerId, workflowId;
+        public final String title, status, stage;
+        public final double value;
+        public final long createdAt, updatedAt;
+        public final String clientName, clientCompany;
+
+        public PipelineRow(int id, int clientId, String title, double value, String status, String stage, int ownerId, int workflowId,
+                           long createdAt, long updatedAt, String clientName, String clientCompany) {
+            this.id = id; this.clientId = clientId; this.title = title; this.value = value; this.status = status; this.stage = stage;
+            this.ownerId = ownerId; this.workflowId = workflowId; this.createdAt = createdAt; this.updatedAt = updatedAt;
+            this.clientName = clientName; this.clientCompany = clientCompany;
+        }
+    }
+
+    /** Pipeline filter; null fields are not filtered on. */
+    public static class Filter {
+        public String status;
+        public String stage;
+        public Integer ownerId;
+        public Integer workflowId;
+
+        public Filter status(String v) { this.status = v; return this; }
+        public Filter stage(String v) { this.stage = v; return this; }
+        public Filter owner(int v) { this.ownerId = v; return this; }
+        public Filter workflow(int v) { this.workflowId = v; return this; }
+    }
+
+    // Opportunities joined to their clients in one query, newest first. limit <= 0 means no limit.
+    public static List<PipelineRow> listPipeline(Filter filter, int limit, int offset) {
+        List<PipelineRow> out = new ArrayList<>();
+        StringBuilder q = new StringBuilder(
+                "SELECT o.id, o.client_id, o.title, o.value, o.status, o.stage, o.owner_id, o.workflow_id, o.created_at, o.updated_at, " +
+                "c.name AS client_name, c.company AS client_company " +
+                "FROM opportunities o LEFT JOIN clients c ON c.id = o.client_id WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter != null) {
+            if (filter.status != null) { q.append(" AND o.status = ?"); args.add(filter.status); }
+            if (filter.stage != null) { q.append(" AND o.stage = ?"); args.add(filter.stage); }
+            if (filter.ownerId != null) { q.append(" AND o.owner_id = ?"); args.add(filter.ownerId); }
+            if (filter.workflowId != null) { q.append(" AND o.workflow_id = ?"); args.add(filter.workflowId); }
+        }
+        q.append(" ORDER BY o.updated_at DESC, o.id DESC LIMIT ? OFFSET ?");
+        args.add(limit > 0 ? limit : -1);
+        args.add(Math.max(0, offset));
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q.toString())) {
+            for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.add(new PipelineRow(rs.getInt("id"), rs.getInt("client_id"), rs.getString("title"), rs.getDouble("value"),
+                            rs.getString("status"), rs.getString("stage"), rs.getInt("owner_id"), rs.getInt("workflow_id"),
+                            rs.getLong("created_at"), rs.getLong("updated_at"), rs.getString("client_name"), rs.getString("client_company")));
+                }
+            }
+        } catch (Exception ex) { ex.printStackTrace(); }
+        return out;
+    }
+
     public static int insert(int clientId, String title, double value, String status, String stage) {
-        String sql = "INSERT INTO opportunities(client_id,title,value,status,stage,created_at) VALUES(?,?,?,?,?,?)";
+        // updated_at starts out as created_at so keyset paging on (updated_at, id) never sees NULLs
+        String sql = "INSERT INTO opportunities(client_id,title,value,status,stage,created_at,updated_at) VALUES(?,?,?,?,?,?,?)";
         long now = System.currentTimeMillis();
         try (Connection c = Database.getConnection(); PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             ps.setInt(1, clientId);
@@ -42,6 +118,7 @@ public final class OpportunityDAO {
             ps.setString(4, status);
             ps.setString(5, stage);
             ps.setLong(6, now);
+            ps.setLong(7, now);
             ps.executeUpdate();
             try (ResultSet rs = ps.getGeneratedKeys()) { if (rs.next()) return rs.getInt(1); }
         } catch (Exception ex) { ex.printStackTrace(); }
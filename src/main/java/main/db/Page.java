@@ -0,0 +1,28 @@
+package main.db;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. Pass {@link #next} back to the same DAO method
+ * to fetch the following page; it is null on the last page.
+ */
+public final class Page<T> {
+
+    /** Opaque position in a listing: the sort-key values of the last row handed out. */
+    public static final class Cursor {
+        final Object[] keys;
+        Cursor(Object[] keys) { this.keys = keys; }
+    }
+
+    public final List<T> items;
+    public final Cursor next;
+
+    Page(List<T> items, Cursor next) {
+        this.items = items;
+        this.next = next;
+    }
+
+    public boolean hasMore() { return next != null; }
+
+    static <T> Page<T> empty() { return new Page<>(List.of(), null); }
+}
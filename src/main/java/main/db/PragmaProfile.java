@@ -0,0 +1,78 @@
+package main.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * PRAGMA settings applied to every pooled connection when it is opened.
+ * journal_mode is persistent in the database file, so it is only issued on the writer.
+ * Defaults favour WAL with synchronous=NORMAL so readers never block behind the writer.
+ */
+public final class PragmaProfile {
+    public final String journalMode;     // WAL, DELETE, TRUNCATE, ...
+    public final String synchronous;     // OFF, NORMAL, FULL, EXTRA
+    public final int cacheSizeKb;        // page cache per connection, in KiB
+    public final long mmapSize;          // bytes, 0 disables memory-mapped I/O
+    public final String tempStore;       // DEFAULT, FILE, MEMORY
+    public final int busyTimeoutMs;
+    public final int walAutoCheckpoint;  // pages, 0 disables automatic checkpoints on commit
+    public final boolean foreignKeys;
+
+    public PragmaProfile(String journalMode, String synchronous, int cacheSizeKb, long mmapSize, String tempStore,
+                         int busyTimeoutMs, int walAutoCheckpoint, boolean foreignKeys) {
+        this.journalMode = keyword(journalMode, "WAL");
+        this.synchronous = keyword(synchronous, "NORMAL");
+        this.cacheSizeKb = Math.max(0, cacheSizeKb);
+        this.mmapSize = Math.max(0L, mmapSize);
+        this.tempStore = keyword(tempStore, "MEMORY");
+        this.busyTimeoutMs = Math.max(0, busyTimeoutMs);
+        this.walAutoCheckpoint = Math.max(0, walAutoCheckpoint);
+        this.foreignKeys = foreignKeys;
+    }
+
+    // -Dsolflow.db.journalMode=WAL -Dsolflow.db.synchronous=NORMAL -Dsolflow.db.cacheSizeKb=16384 ...
+    public static PragmaProfile fromSystemProperties() {
+        return new PragmaProfile(
+                System.getProperty("solflow.db.journalMode", "WAL"),
+                System.getProperty("solflow.db.synchronous", "NORMAL"),
+                Integer.getInteger("solflow.db.cacheSizeKb", 16 * 1024),
+                Long.getLong("solflow.db.mmapSize", 256L * 1024 * 1024),
+                System.getProperty("solflow.db.tempStore", "MEMORY"),
+                Integer.getInteger("solflow.db.busyTimeoutMs", 5000),
+                Integer.getInteger("solflow.db.walAutoCheckpoint", 4000),
+                Boolean.parseBoolean(System.getProperty("solflow.db.foreignKeys", "true")));
+    }
+
+    public boolean isWal() { return "WAL".equals(journalMode); }
+
+    void apply(Connection c, boolean writer) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            // busy_timeout first so the remaining pragmas wait out a concurrent writer instead of failing
+            s.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+            if (writer) {
+                s.execute("PRAGMA journal_mode = " + journalMode);
+                if (isWal()) s.execute("PRAGMA wal_autocheckpoint = " + walAutoCheckpoint);
+            }
+            s.execute("PRAGMA synchronous = " + synchronous);
+            s.execute("PRAGMA cache_size = -" + cacheSizeKb);
+            s.execute("PRAGMA mmap_size = " + mmapSize);
+            s.execute("PRAGMA temp_store = " + tempStore);
+            s.execute("PRAGMA foreign_keys = " + (foreignKeys ? "ON" : "OFF"));
+        }
+    }
+
+    // pragma values can't be bound as parameters, so only accept bare keywords
+    private static String keyword(String v, String def) {
+        if (v == null || !v.trim().matches("[A-Za-z]+")) return def;
+        return v.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public String toString() {
+        return "journal_mode=" + journalMode + ", synchronous=" + synchronous + ", cache_size=-" + cacheSizeKb
+                + ", mmap_size=" + mmapSize + ", temp_store=" + tempStore + ", busy_timeout=" + busyTimeoutMs
+                + ", wal_autocheckpoint=" + walAutoCheckpoint + ", foreign_keys=" + foreignKeys;
+    }
+}
@@ -0,0 +1,58 @@
+package main.db;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Startup sanity check: runs EXPLAIN QUERY PLAN over the hot DAO queries and reports any
+ * that would fall back to a full-table scan or a temp b-tree sort (i.e. a missing index).
+ * Disable with -Dsolflow.db.checkPlans=false.
+ */
+final class QueryPlanCheck {
+    private QueryPlanCheck() {}
+
+    private static Map<String, String> hotQueries() {
+        Map<String, String> q = new LinkedHashMap<>();
+        q.put("TaskDAO.listForWorkflow", TaskDAO.SQL_LIST_FOR_WORKFLOW);
+        q.put("TaskDAO.listTasksNeedingReminderMinutes", TaskDAO.SQL_NEEDING_REMINDER);
+        q.put("TaskDAO.listReminderCandidates", TaskDAO.SQL_REMINDER_CANDIDATES);
+        q.put("FileDAO.listForWorkflow", FileDAO.SQL_LIST_FOR_WORKFLOW);
+        q.put("WorkflowDAO.listForUser", WorkflowDAO.SQL_LIST_FOR_USER);
+        q.put("SheetDAO.listSheets", SheetDAO.SQL_LIST_SHEETS);
+        q.put("SheetDAO.listSheetMeta", SheetDAO.SQL_LIST_SHEET_META);
+        return q;
+    }
+
+    // Returns one message per offending plan step; empty when every hot query is index-backed.
+    static List<String> findProblems(Connection c) throws SQLException {
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<String, String> e : hotQueries().entrySet()) {
+            // unbound parameters are fine here, the planner only needs the shape of the query
+            try (PreparedStatement ps = c.prepareStatement("EXPLAIN QUERY PLAN " + e.getValue());
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String detail = rs.getString("detail");
+                    if (detail == null) continue;
+                    boolean fullScan = detail.startsWith("SCAN ") && !detail.contains(" USING ");
+                    boolean tempSort = detail.startsWith("USE TEMP B-TREE");
+                    if (fullScan || tempSort) out.add(e.getKey() + ": " + detail);
+                }
+            }
+        }
+        return out;
+    }
+
+    static void run() {
+        if (!Boolean.parseBoolean(System.getProperty("solflow.db.checkPlans", "true"))) return;
+        try (Connection c = Database.getReadConnection()) {
+            for (String problem : findProblems(c)) {
+                System.err.println("[SolFlow] query plan without index: " + problem);
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        }
+    }
+}
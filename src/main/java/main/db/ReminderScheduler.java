@@ -0,0 +1,287 @@
+package main.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Event-driven task reminders, replacing the old 10-second polling timer.
+ * - Loads the due time of every open, never-reminded task once and keeps them in a priority queue.
+ * - A single daemon thread sleeps until the earliest due time; nothing touches the database in between.
+ * - TaskDAO change notifications (insert/update/check/delete) re-read just the affected rows.
+ * - When a deadline passes, the index-backed reminder query decides what is actually due,
+ *   each task is marked as reminded and handed to the listener (on the scheduler thread).
+ * - A failed query keeps its work (reload, dirty ids, due entries) and is retried with backoff,
+ *   so a transient error such as SQLITE_BUSY never loses a reminder.
+ * - A change to the reminder_window_minutes setting reloads everything (SettingsDAO listener).
+ */
+public final class ReminderScheduler {
+
+    public interface Listener {
+        // windowMinutes is the task's effective window (its own, else the global setting)
+        void reminderDue(TaskDAO.TaskRecord task, int windowMinutes);
+    }
+
+    private static final class Entry {
+        final long dueAt; // epoch seconds
+        final int id;
+        Entry(long dueAt, int id) { this.dueAt = dueAt; this.id = id; }
+    }
+
+    private static ReminderScheduler instance; // guarded by ReminderScheduler.class
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeup = lock.newCondition();
+    // guarded by lock; queue entries whose dueAt no longer matches dueById are stale and skipped
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>((a, b) -> Long.compare(a.dueAt, b.dueAt));
+    private final Map<Integer, Long> dueById = new HashMap<>();
+    private Set<Integer> dirtyIds = new HashSet<>();
+    private boolean reloadRequested = true;
+    private boolean running = true;
+    private long retryAtMillis; // no database work before this after a failure
+    private int failures;       // consecutive failed passes
+
+    private volatile Listener listener;
+    private volatile int windowMinutes = 1;
+    private final TaskDAO.ChangeListener changeListener = this::markDirty;
+    private final SettingsDAO.ChangeListener settingsListener = (key, value) -> {
+        if ("reminder_window_minutes".equals(key)) reload();
+    };
+    private final Thread thread;
+
+    private ReminderScheduler(Listener listener) {
+        this.listener = listener;
+        this.thread = new Thread(this::runLoop, "SolFlow-reminders");
+        this.thread.setDaemon(true);
+    }
+
+    /** Starts the scheduler, or swaps the listener if it is already running. */
+    public static synchronized ReminderScheduler start(Listener listener) {
+        if (instance == null) {
+            instance = new ReminderScheduler(listener);
+            TaskDAO.addChangeListener(instance.changeListener);
+            SettingsDAO.addChangeListener(instance.settingsListener);
+            instance.thread.start();
+        } else {
+            instance.listener = listener;
+        }
+        return instance;
+    }
+
+    public static synchronized void stop() {
+        if (instance == null) return;
+        TaskDAO.removeChangeListener(instance.changeListener);
+        SettingsDAO.removeChangeListener(instance.settingsListener);
+        instance.lock.lock();
+        try {
+            instance.running = false;
+            instance.wakeup.signalAll();
+        } finally {
+            instance.lock.unlock();
+        }
+        instance = null;
+    }
+
+    /** Re-reads the global reminder window and every pending due time. */
+    public void reload() {
+        lock.lock();
+        try {
+            reloadRequested = true;
+            wakeup.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return dueById.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // epoch seconds of the next reminder, or 0 when nothing is scheduled
+    public long nextDueAt() {
+        lock.lock();
+        try {
+            dropStaleHead();
+            Entry head = queue.peek();
+            return head == null ? 0L : head.dueAt;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void markDirty(Collection<Integer> ids) {
+        lock.lock();
+        try {
+            dirtyIds.addAll(ids);
+            wakeup.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long dueAt(TaskDAO.TaskRecord t) {
+        return TaskDAO.reminderDueAt(t, windowMinutes);
+    }
+
+    private static boolean pending(TaskDAO.TaskRecord t) {
+        return !t.checked && t.lastReminderSent == 0 && t.createdAt > 0;
+    }
+
+    private void runLoop() {
+        while (true) {
+            boolean reload;
+            Set<Integer> dirty;
+            boolean due;
+            lock.lock();
+            try {
+                while (running) {
+                    long now = System.currentTimeMillis();
+                    long waitMs;
+                    if (now < retryAtMillis) {
+                        waitMs = retryAtMillis - now;
+                    } else if (reloadRequested || !dirtyIds.isEmpty() || headIsDue()) {
+                        break;
+                    } else {
+                        Entry head = queue.peek();
+                        waitMs = head == null ? -1 : head.dueAt * 1000L - now;
+                    }
+                    if (waitMs < 0) wakeup.await();
+                    else if (waitMs > 0) wakeup.await(waitMs, TimeUnit.MILLISECONDS);
+                }
+                if (!running) return;
+                reload = reloadRequested;
+                reloadRequested = false;
+                dirty = dirtyIds;
+                dirtyIds = new HashSet<>();
+                due = headIsDue();
+            } catch (InterruptedException ie) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (reload) loadAll();
+                else if (!dirty.isEmpty()) refresh(dirty);
+                if (due) fireDue();
+                failures = 0;
+            } catch (SQLException ex) {
+                retryLater(reload, dirty, ex);
+            } catch (RuntimeException ex) {
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    // hands the work of a failed pass back to the loop and backs off: 1s, 2s, 4s ... up to a minute
+    private void retryLater(boolean reload, Set<Integer> dirty, SQLException ex) {
+        failures++;
+        long delayMs = Math.min(60_000L, 1000L << Math.min(failures - 1, 6));
+        System.err.println("[SolFlow] reminder query failed, retrying in " + delayMs + " ms: " + ex.getMessage());
+        lock.lock();
+        try {
+            if (reload) reloadRequested = true;
+            dirtyIds.addAll(dirty); // due entries were left in place
+            retryAtMillis = System.currentTimeMillis() + delayMs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds lock
+    private void dropStaleHead() {
+        Entry head;
+        while ((head = queue.peek()) != null) {
+            Long current = dueById.get(head.id);
+            if (current != null && current == head.dueAt) return;
+            queue.poll();
+        }
+    }
+
+    // caller holds lock
+    private boolean headIsDue() {
+        dropStaleHead();
+        Entry head = queue.peek();
+        return head != null && head.dueAt * 1000L <= System.currentTimeMillis();
+    }
+
+    private void loadAll() throws SQLException {
+        windowMinutes = SettingsDAO.getInt("reminder_window_minutes", 1);
+        List<TaskDAO.TaskRecord> candidates = TaskDAO.listReminderCandidates();
+        lock.lock();
+        try {
+            queue.clear();
+            dueById.clear();
+            for (TaskDAO.TaskRecord t : candidates) schedule(t.id, dueAt(t));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refresh(Set<Integer> ids) throws SQLException {
+        List<TaskDAO.TaskRecord> rows = TaskDAO.queryByIds(ids);
+        lock.lock();
+        try {
+            // ids that no longer exist were deleted
+            for (int id : ids) dueById.remove(id);
+            for (TaskDAO.TaskRecord t : rows) {
+                if (pending(t)) schedule(t.id, dueAt(t));
+            }
+            // lazily-deleted entries pile up under heavy editing; rebuild once they dominate
+            if (queue.size() > 2 * dueById.size() + 64) {
+                queue.clear();
+                for (Map.Entry<Integer, Long> e : dueById.entrySet()) queue.add(new Entry(e.getValue(), e.getKey()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // caller holds lock
+    private void schedule(int id, long dueAt) {
+        Long prev = dueById.put(id, dueAt);
+        if (prev == null || prev != dueAt) queue.add(new Entry(dueAt, id));
+    }
+
+    private void fireDue() throws SQLException {
+        int window = windowMinutes;
+        // one clock read: an entry the query could not yet see as due must not be expired below
+        long nowSec = System.currentTimeMillis() / 1000L;
+        // throws on error, before any entry is dropped
+        List<TaskDAO.TaskRecord> due = TaskDAO.queryTasksNeedingReminder(window, nowSec);
+        lock.lock();
+        try {
+            // whatever the query didn't return is no longer pending; the query is the source of truth
+            List<Integer> expired = new ArrayList<>();
+            for (Map.Entry<Integer, Long> e : dueById.entrySet()) {
+                if (e.getValue() <= nowSec) expired.add(e.getKey());
+            }
+            for (int id : expired) dueById.remove(id);
+            for (TaskDAO.TaskRecord t : due) dueById.remove(t.id);
+        } finally {
+            lock.unlock();
+        }
+        for (TaskDAO.TaskRecord t : due) {
+            // mark reminder sent before notifying to avoid duplicates
+            TaskDAO.setLastReminderSent(t.id, nowSec);
+            Listener l = listener;
+            if (l != null) {
+                int effective = t.reminderWindowMinutes > 0 ? t.reminderWindowMinutes : window;
+                try { l.reminderDue(t, effective); } catch (RuntimeException ex) { ex.printStackTrace(); }
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package main.db;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned schema migrations. The applied version lives in PRAGMA user_version, so a warm
+ * start costs a single header read; pending steps run together in one transaction.
+ * To change the schema append a new Migration with the next version number - never edit
+ * a step that has already shipped.
+ */
+final class SchemaMigrations {
+    private SchemaMigrations() {}
+
+    private interface Step {
+        void apply(Connection c, Statement s) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+        Migration(int version, String description, Step step) {
+            this.version = version; this.description = description; this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "baseline schema", SchemaMigrations::baseline),
+            new Migration(2, "indexes for hot DAO queries", SchemaMigrations::hotQueryIndexes),
+            new Migration(3, "index for per-task reminder windows", SchemaMigrations::perTaskReminderIndex),
+            new Migration(4, "indexes for the sales pipeline listing", SchemaMigrations::pipelineIndexes),
+            new Migration(5, "keyset pagination indexes", SchemaMigrations::keysetIndexes),
+            new Migration(6, "sheet metadata columns", SchemaMigrations::sheetMetadata),
+            new Migration(7, "row-block sheet storage", SchemaMigrations::sheetRowBlocks)
+    );
+
+    static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    static int currentVersion(Connection c) throws SQLException {
+        try (Statement s = c.createStatement(); ResultSet rs = s.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // Returns the schema version after migrating.
+    static int migrate(Connection c) throws SQLException {
+        int current = currentVersion(c);
+        int latest = latestVersion();
+        if (current >= latest) return current;
+
+        boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (Statement s = c.createStatement()) {
+            for (Migration m : MIGRATIONS) {
+                if (m.version <= current) continue;
+                try {
+                    m.step.apply(c, s);
+                } catch (SQLException ex) {
+                    throw new SQLException("Schema migration " + m.version + " (" + m.description + ") failed: " + ex.getMessage(), ex);
+                }
+            }
+            // user_version lives in the database header and is covered by the transaction
+            s.execute("PRAGMA user_version = " + latest);
+            c.commit();
+        } catch (SQLException | RuntimeException ex) {
+            c.rollback();
+            throw ex;
+        } finally {
+            c.setAutoCommit(autoCommit);
+        }
+        return latest;
+    }
+
+    private static boolean hasColumn(Connection c, String table, String column) throws SQLException {
+        try (Statement s = c.createStatement(); ResultSet rs = s.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addColumnIfMissing(Connection c, Statement s, String table, String column, String decl) throws SQLException {
+        if (!hasColumn(c, table, column)) {
+            s.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + decl);
+        }
+    }
+
+    // v1: everything Database.init used to create, including the columns older databases lack.
+    private static void baseline(Connection c, Statement s) throws SQLException {
+        s.execute("CREATE TABLE IF NOT EXISTS users (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "username TEXT NOT NULL UNIQUE, " +
+                "password_hash TEXT NOT NULL, " +
+                "salt TEXT NOT NULL, " +
+                "created_at INTEGER)");
+        s.execute("CREATE TABLE IF NOT EXISTS files (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "path TEXT NOT NULL UNIQUE, " +
+                "name TEXT, size INTEGER, mtime INTEGER, added_at INTEGER)");
+        s.execute("CREATE TABLE IF NOT EXISTS sheets (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "name TEXT UNIQUE, csv TEXT, updated_at INTEGER)");
+        s.execute("CREATE TABLE IF NOT EXISTS settings (" +
+                "key TEXT PRIMARY KEY, value TEXT)");
+        s.execute("CREATE TABLE IF NOT EXISTS workflows (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "name TEXT NOT NULL, " +
+                "created_at INTEGER, " +
+                "updated_at INTEGER, " +
+                "template INTEGER DEFAULT 0, " +
+                "user_id INTEGER DEFAULT 0)");
+        s.execute("CREATE TABLE IF NOT EXISTS tasks (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "text TEXT NOT NULL, " +
+                "checked INTEGER DEFAULT 0, " +
+                "ord INTEGER DEFAULT 0, " +
+                "updated_at INTEGER)");
+        // workflow scoping / reminder columns that pre-versioned databases may be missing
+        addColumnIfMissing(c, s, "tasks", "workflow_id", "INTEGER DEFAULT 0");
+        addColumnIfMissing(c, s, "tasks", "created_at", "INTEGER DEFAULT 0"); // epoch seconds
+        addColumnIfMissing(c, s, "tasks", "last_reminder_sent", "INTEGER DEFAULT 0"); // epoch seconds
+        addColumnIfMissing(c, s, "tasks", "reminder_window_hours", "INTEGER DEFAULT 0"); // 0 == use global setting
+        addColumnIfMissing(c, s, "tasks", "reminder_window_minutes", "INTEGER DEFAULT 0"); // 0 == use global setting
+        addColumnIfMissing(c, s, "files", "workflow_id", "INTEGER DEFAULT 0");
+        addColumnIfMissing(c, s, "workflows", "user_id", "INTEGER DEFAULT 0");
+        addColumnIfMissing(c, s, "files", "user_id", "INTEGER DEFAULT 0");
+        s.execute("CREATE TABLE IF NOT EXISTS cards (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "title TEXT, x INTEGER, y INTEGER, w INTEGER, h INTEGER, content TEXT, updated_at INTEGER)");
+        // Sales / CRM tables
+        s.execute("CREATE TABLE IF NOT EXISTS clients (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "name TEXT NOT NULL, " +
+                "company TEXT, " +
+                "email TEXT, " +
+                "phone TEXT, " +
+                "created_at INTEGER, " +
+                "updated_at INTEGER)");
+        s.execute("CREATE TABLE IF NOT EXISTS opportunities (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "client_id INTEGER, " +
+                "title TEXT NOT NULL, " +
+                "value REAL DEFAULT 0, " +
+                "status TEXT DEFAULT 'prospect', " +
+                "stage TEXT DEFAULT 'in_progress', " +
+                "owner_id INTEGER DEFAULT 0, " +
+                "created_at INTEGER, " +
+                "updated_at INTEGER, " +
+                "workflow_id INTEGER DEFAULT 0)");
+        s.execute("CREATE TABLE IF NOT EXISTS interactions (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "opportunity_id INTEGER, " +
+                "kind TEXT, " +
+                "note TEXT, " +
+                "when_ts INTEGER, " +
+                "created_at INTEGER)");
+    }
+
+    // v2: indexes backing the DAO queries listed in QueryPlanCheck.
+    private static void hotQueryIndexes(Connection c, Statement s) throws SQLException {
+        // TaskDAO.listForWorkflow: WHERE workflow_id = ? ORDER BY ord, id
+        s.execute("CREATE INDEX IF NOT EXISTS idx_tasks_workflow_ord ON tasks(workflow_id, ord, id)");
+        // TaskDAO.listTasksNeedingReminderMinutes: only open, never-reminded tasks are indexed
+        s.execute("CREATE INDEX IF NOT EXISTS idx_tasks_reminder_open ON tasks(created_at) " +
+                "WHERE checked = 0 AND IFNULL(last_reminder_sent, 0) = 0");
+        // FileDAO.listForWorkflow: WHERE workflow_id = ? ORDER BY added_at DESC
+        s.execute("CREATE INDEX IF NOT EXISTS idx_files_workflow_added ON files(workflow_id, added_at)");
+        // WorkflowDAO.listForUser: WHERE user_id = ? ORDER BY created_at DESC
+        s.execute("CREATE INDEX IF NOT EXISTS idx_workflows_user_created ON workflows(user_id, created_at)");
+        // SheetDAO.listSheets / getLastSavedSheet fallback: ORDER BY updated_at DESC
+        s.execute("CREATE INDEX IF NOT EXISTS idx_sheets_updated ON sheets(updated_at)");
+    }
+
+    // v3: TaskDAO.listTasksNeedingReminderMinutes, second branch - tasks with their own window,
+    // indexed by their effective due time.
+    private static void perTaskReminderIndex(Connection c, Statement s) throws SQLException {
+        s.execute("CREATE INDEX IF NOT EXISTS idx_tasks_reminder_custom ON tasks(created_at + reminder_window_minutes * 60) " +
+                "WHERE checked = 0 AND IFNULL(last_reminder_sent, 0) = 0 AND reminder_window_minutes > 0");
+    }
+
+    // v4: OpportunityDAO.listPipeline orders by updated_at, id and is usually scoped to a workflow.
+    // The join to clients goes through its primary key and needs nothing extra.
+    private static void pipelineIndexes(Connection c, Statement s) throws SQLException {
+        s.execute("CREATE INDEX IF NOT EXISTS idx_opportunities_updated ON opportunities(updated_at, id)");
+        s.execute("CREATE INDEX IF NOT EXISTS idx_opportunities_workflow ON opportunities(workflow_id, updated_at, id)");
+    }
+
+    // v5: every keyset-paginated listing (see KeysetQuery) needs an index on its sort keys.
+    // The rest are covered by v2/v4 (secondary indexes end in the rowid, so id comes for free).
+    private static void keysetIndexes(Connection c, Statement s) throws SQLException {
+        s.execute("CREATE INDEX IF NOT EXISTS idx_tasks_ord ON tasks(ord, id)");
+        s.execute("CREATE INDEX IF NOT EXISTS idx_cards_updated ON cards(updated_at, id)");
+        s.execute("CREATE INDEX IF NOT EXISTS idx_clients_name ON clients(name, id)");
+        // row-value comparisons never match NULL, and OpportunityDAO.insert used to leave updated_at unset
+        s.execute("UPDATE opportunities SET updated_at = IFNULL(created_at, 0) WHERE updated_at IS NULL");
+    }
+
+    // v6: size and shape of each sheet, so SheetDAO.listSheetMeta never has to read the csv blobs.
+    private static void sheetMetadata(Connection c, Statement s) throws SQLException {
+        addColumnIfMissing(c, s, "sheets", "size_bytes", "INTEGER DEFAULT 0");
+        addColumnIfMissing(c, s, "sheets", "row_count", "INTEGER DEFAULT 0");
+        addColumnIfMissing(c, s, "sheets", "col_count", "INTEGER DEFAULT 0");
+        // backfill one sheet at a time so only a single csv is in memory
+        List<Integer> ids = new ArrayList<>();
+        try (ResultSet rs = s.executeQuery("SELECT id FROM sheets")) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        try (PreparedStatement read = c.prepareStatement("SELECT csv FROM sheets WHERE id = ?");
+             PreparedStatement write = c.prepareStatement("UPDATE sheets SET size_bytes = ?, row_count = ?, col_count = ? WHERE id = ?")) {
+            for (int id : ids) {
+                String csv;
+                read.setInt(1, id);
+                try (ResultSet rs = read.executeQuery()) {
+                    csv = rs.next() ? rs.getString(1) : null;
+                }
+                int[] shape = SheetDAO.shape(csv);
+                write.setLong(1, SheetDAO.utf8Length(csv));
+                write.setInt(2, shape[0]);
+                write.setInt(3, shape[1]);
+                write.setInt(4, id);
+                write.executeUpdate();
+            }
+        }
+    }
+
+    // v7: sheets saved through SheetDAO.saveSheetDelta keep their header line in sheets.header and
+    // their rows in sheet_blocks, SheetDAO.ROW_BLOCK_SIZE rows per block; sheets.csv stays NULL.
+    // bytes precedes data so summing it never has to read the (possibly overflowing) block text.
+    private static void sheetRowBlocks(Connection c, Statement s) throws SQLException {
+        addColumnIfMissing(c, s, "sheets", "header", "TEXT");
+        addColumnIfMissing(c, s, "sheets", "row_blocks", "INTEGER DEFAULT 0");
+        s.execute("CREATE TABLE IF NOT EXISTS sheet_blocks (" +
+                "sheet_id INTEGER NOT NULL, " +
+                "block_idx INTEGER NOT NULL, " +
+                "bytes INTEGER NOT NULL, " +
+                "data TEXT NOT NULL, " +
+                "PRIMARY KEY (sheet_id, block_idx))");
+    }
+}
@@ -1,21 +1,64 @@
 package main.db;
 
 import java.sql.*;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Tiny settings helper stored in the `settings` table (key/value TEXT).
+ * - Reads are served from an in-process cache that loads the whole table on first use.
+ * - Writes go to the database first and then to the cache (write-through). Inside an enclosing
+ *   Database.inTransaction the cache update waits for the commit and is dropped on rollback.
+ * - Listeners hear about every value that actually changed through this class.
  */
 public final class SettingsDAO {
     private SettingsDAO() {}
 
-    public static String getString(String key, String defaultValue) {
-        try (Connection c = Database.getConnection(); PreparedStatement ps = c.prepareStatement("SELECT value FROM settings WHERE key = ?")) {
-            ps.setString(1, key);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return rs.getString(1);
+    public interface ChangeListener {
+        void settingChanged(String key, String value);
+    }
+
+    private static final Map<String, String> cache = new ConcurrentHashMap<>();
+    private static volatile boolean loaded;
+    private static final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public static void addChangeListener(ChangeListener l) { listeners.add(l); }
+
+    public static void removeChangeListener(ChangeListener l) { listeners.remove(l); }
+
+    private static void ensureLoaded() {
+        if (loaded) return;
+        synchronized (SettingsDAO.class) {
+            if (loaded) return;
+            try (Connection c = Database.getReadConnection(); Statement s = c.createStatement();
+                 ResultSet rs = s.executeQuery("SELECT key, value FROM settings")) {
+                cache.clear();
+                while (rs.next()) {
+                    String v = rs.getString(2);
+                    if (v != null) cache.put(rs.getString(1), v);
+                }
+                loaded = true;
+            } catch (Exception ignored) {
+                // leave unloaded; the next read retries
             }
-        } catch (Exception ignored) {}
-        return defaultValue;
+        }
+    }
+
+    // Drop the cache so the next read reloads the table (e.g. after writing settings through SQL directly).
+    public static void invalidate() {
+        synchronized (SettingsDAO.class) {
+            loaded = false;
+            cache.clear();
+        }
+    }
+
+    public static String getString(String key, String defaultValue) {
+        ensureLoaded();
+        String v = cache.get(key);
+        return v != null ? v : defaultValue;
     }
 
     public static int getInt(String key, int defaultValue) {
@@ -30,7 +73,20 @@ public final class SettingsDAO {
             ps.setString(1, key);
             ps.setString(2, value);
             ps.executeUpdate();
-        } catch (Exception ignored) {}
+        } catch (Exception ignored) {
+            return;
+        }
+        // only a committed value may reach the cache and the listeners
+        Database.afterCommit(() -> publish(key, value));
+    }
+
+    private static void publish(String key, String value) {
+        String old = value == null ? cache.remove(key) : cache.put(key, value);
+        if (!Objects.equals(old, value)) {
+            for (ChangeListener l : listeners) {
+                try { l.settingChanged(key, value); } catch (RuntimeException ex) { ex.printStackTrace(); }
+            }
+        }
     }
 
     public static void setInt(String key, int value) { setString(key, String.valueOf(value)); }
@@ -0,0 +1,98 @@
+package main.db;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Storage codec for sheet text (sheets.csv and sheet_blocks.data).
+ * - Plain TEXT values are stored and read back unchanged; that is how every sheet saved before
+ *   the codec existed looks.
+ * - Compressed values are BLOBs: one version byte, the 4-byte big-endian UTF-8 length, then a
+ *   zlib (Deflater) stream. Nothing else in those columns is ever a BLOB.
+ * - Values under MIN_COMPRESS_BYTES, or that don't shrink, stay TEXT.
+ * Configure with -Dsolflow.db.sheetCodec=deflate|none and -Dsolflow.db.sheetCodecLevel=1..9.
+ */
+public final class SheetCodec {
+    private SheetCodec() {}
+
+    static final byte VERSION_DEFLATE = 1;
+    static final int MIN_COMPRESS_BYTES = 512;
+    private static final int HEADER_BYTES = 5;
+
+    private static final boolean ENABLED =
+            !"none".equalsIgnoreCase(System.getProperty("solflow.db.sheetCodec", "deflate").trim());
+    private static final int LEVEL =
+            Math.max(1, Math.min(9, Integer.getInteger("solflow.db.sheetCodecLevel", 6)));
+
+    public static boolean enabled() { return ENABLED; }
+
+    // What to bind for a sheet text column: the text itself or a compressed BLOB.
+    static Object encode(String text) {
+        if (!ENABLED || text == null || text.length() < MIN_COMPRESS_BYTES / 3) return text;
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (raw.length < MIN_COMPRESS_BYTES) return text;
+        byte[] packed = deflate(raw, LEVEL);
+        return packed.length < raw.length ? packed : text;
+    }
+
+    // Reverses encode() for a value read with ResultSet.getObject.
+    static String decode(Object stored) throws SQLException {
+        if (stored == null) return null;
+        if (stored instanceof String) return (String) stored;
+        if (stored instanceof byte[]) {
+            try {
+                return inflate((byte[]) stored);
+            } catch (DataFormatException | IllegalArgumentException ex) {
+                throw new SQLException("corrupt sheet blob: " + ex.getMessage(), ex);
+            }
+        }
+        return stored.toString();
+    }
+
+    /** Compresses UTF-8 bytes into the versioned BLOB format. */
+    public static byte[] deflate(byte[] raw, int level) {
+        Deflater d = new Deflater(level);
+        try {
+            d.setInput(raw);
+            d.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            out.write(VERSION_DEFLATE);
+            out.write(raw.length >>> 24); out.write(raw.length >>> 16); out.write(raw.length >>> 8); out.write(raw.length);
+            byte[] buf = new byte[8192];
+            while (!d.finished()) {
+                int n = d.deflate(buf);
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            d.end();
+        }
+    }
+
+    /** Decodes a versioned BLOB back to text. */
+    public static String inflate(byte[] blob) throws DataFormatException {
+        if (blob.length < HEADER_BYTES) throw new IllegalArgumentException("blob too short");
+        if (blob[0] != VERSION_DEFLATE) throw new IllegalArgumentException("unknown sheet codec version " + blob[0]);
+        int len = ((blob[1] & 0xff) << 24) | ((blob[2] & 0xff) << 16) | ((blob[3] & 0xff) << 8) | (blob[4] & 0xff);
+        if (len < 0) throw new IllegalArgumentException("bad length " + len);
+        Inflater inf = new Inflater();
+        try {
+            inf.setInput(blob, HEADER_BYTES, blob.length - HEADER_BYTES);
+            byte[] raw = new byte[len];
+            int off = 0;
+            while (off < len) {
+                int n = inf.inflate(raw, off, len - off);
+                if (n == 0 && (inf.finished() || inf.needsInput() || inf.needsDictionary())) break;
+                off += n;
+            }
+            if (off != len) throw new DataFormatException("expected " + len + " bytes, got " + off);
+            return new String(raw, StandardCharsets.UTF_8);
+        } finally {
+            inf.end();
+        }
+    }
+}
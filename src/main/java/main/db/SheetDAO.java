@@ -3,56 +3,217 @@ package main.db;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public final class SheetDAO {
+    // rows per sheet_blocks row: small enough that a cell edit rewrites little, large enough
+    // that a multi-megabyte sheet stays at a few thousand blocks
+    public static final int ROW_BLOCK_SIZE = 64;
+
+    // Whole-csv save; a sheet previously stored as row blocks goes back to csv storage.
     public static int saveSheet(String name, String csv) throws SQLException {
         long now = System.currentTimeMillis();
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(
-                     "INSERT INTO sheets (name,csv,updated_at) VALUES (?,?,?) " +
-                     "ON CONFLICT(name) DO UPDATE SET csv=excluded.csv, updated_at=excluded.updated_at")) {
-            ps.setString(1, name); ps.setString(2, csv); ps.setLong(3, now);
-            ps.executeUpdate();
+        int[] shape = shape(csv);
+        int id = Database.inTransaction(c -> {
+            int sheetId;
+            try (PreparedStatement ps = c.prepareStatement(
+                    "INSERT INTO sheets (name,csv,updated_at,size_bytes,row_count,col_count,header,row_blocks) VALUES (?,?,?,?,?,?,NULL,0) " +
+                    "ON CONFLICT(name) DO UPDATE SET csv=excluded.csv, updated_at=excluded.updated_at, " +
+                    "size_bytes=excluded.size_bytes, row_count=excluded.row_count, col_count=excluded.col_count, " +
+                    "header=NULL, row_blocks=0 RETURNING id")) {
+                ps.setString(1, name); ps.setObject(2, SheetCodec.encode(csv)); ps.setLong(3, now);
+                ps.setLong(4, utf8Length(csv)); ps.setInt(5, shape[0]); ps.setInt(6, shape[1]);
+                try (ResultSet rs = ps.executeQuery()) {
+                    sheetId = rs.next() ? rs.getInt(1) : -1;
+                }
+            }
+            deleteBlocks(c, sheetId, 0);
+            return sheetId;
+        });
+        if (id > 0) setLastSheetId(id);
+        return id;
+    }
+
+    public static void updateSheet(int id, String csv) throws SQLException {
+        int[] shape = shape(csv);
+        Database.inTransaction(c -> {
+            try (PreparedStatement ps = c.prepareStatement(
+                    "UPDATE sheets SET csv = ?, updated_at = ?, size_bytes = ?, row_count = ?, col_count = ?, " +
+                    "header = NULL, row_blocks = 0 WHERE id = ?")) {
+                ps.setObject(1, SheetCodec.encode(csv)); ps.setLong(2, System.currentTimeMillis());
+                ps.setLong(3, utf8Length(csv)); ps.setInt(4, shape[0]); ps.setInt(5, shape[1]);
+                ps.setInt(6, id); ps.executeUpdate();
+            }
+            deleteBlocks(c, id, 0);
+            return null;
+        });
+        setLastSheetId(id);
+    }
+
+    /**
+     * Changes to a sheet since its last save, in row-block form.
+     * header is the csv line of column names; blocks maps block index to the csv text of rows
+     * [index * ROW_BLOCK_SIZE, (index + 1) * ROW_BLOCK_SIZE), each row ending in '\n'.
+     * full means blocks holds every block of the sheet; it is required the first time a sheet
+     * is saved this way.
+     */
+    public static final class SheetDelta {
+        public final String header;
+        public final int rowCount, colCount;
+        public final Map<Integer, String> blocks;
+        public final boolean full;
+        public SheetDelta(String header, int rowCount, int colCount, Map<Integer, String> blocks, boolean full) {
+            this.header = header == null ? "" : header; this.rowCount = rowCount; this.colCount = colCount;
+            this.blocks = blocks; this.full = full;
         }
-        // return the id
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps2 = c.prepareStatement("SELECT id FROM sheets WHERE name = ?")) {
-            ps2.setString(1, name);
-            try (ResultSet rs = ps2.executeQuery()) {
-                if (rs.next()) {
-                    int id = rs.getInt(1);
-                    setLastSheetId(id);
-                    return id;
+    }
+
+    /**
+     * Saves a sheet as row blocks, writing only the blocks in the delta (plus the header and
+     * shape) in one transaction. Blocks past the new row count are dropped. Returns the sheet id.
+     * Throws if the delta is not full and the sheet is new or still stored as plain csv.
+     */
+    public static int saveSheetDelta(String name, SheetDelta d) throws SQLException {
+        long now = System.currentTimeMillis();
+        int blockCount = (d.rowCount + ROW_BLOCK_SIZE - 1) / ROW_BLOCK_SIZE;
+        int id = Database.inTransaction(c -> {
+            int sheetId = -1;
+            boolean rowBlocks = false;
+            try (PreparedStatement ps = c.prepareStatement("SELECT id, row_blocks FROM sheets WHERE name = ?")) {
+                ps.setString(1, name);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) { sheetId = rs.getInt(1); rowBlocks = rs.getInt(2) == 1; }
                 }
             }
+            if ((sheetId < 0 || !rowBlocks) && !d.full) {
+                throw new SQLException("sheet '" + name + "' has no row blocks yet; the first row-block save must be full");
+            }
+            // row_count counts the header line, like shape() does for csv sheets
+            if (sheetId < 0) {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "INSERT INTO sheets (name,csv,updated_at,size_bytes,row_count,col_count,header,row_blocks) " +
+                        "VALUES (?,NULL,?,0,?,?,?,1) RETURNING id")) {
+                    ps.setString(1, name); ps.setLong(2, now); ps.setInt(3, d.rowCount + 1); ps.setInt(4, d.colCount);
+                    ps.setString(5, d.header);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next()) throw new SQLException("no id returned for sheet '" + name + "'");
+                        sheetId = rs.getInt(1);
+                    }
+                }
+            } else {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "UPDATE sheets SET csv = NULL, updated_at = ?, row_count = ?, col_count = ?, header = ?, row_blocks = 1 WHERE id = ?")) {
+                    ps.setLong(1, now); ps.setInt(2, d.rowCount + 1); ps.setInt(3, d.colCount);
+                    ps.setString(4, d.header); ps.setInt(5, sheetId);
+                    ps.executeUpdate();
+                }
+            }
+            deleteBlocks(c, sheetId, d.full ? 0 : blockCount);
+            if (!d.blocks.isEmpty()) {
+                try (PreparedStatement ps = c.prepareStatement(
+                        "INSERT INTO sheet_blocks (sheet_id,block_idx,bytes,data) VALUES (?,?,?,?) " +
+                        "ON CONFLICT(sheet_id,block_idx) DO UPDATE SET bytes=excluded.bytes, data=excluded.data")) {
+                    for (Map.Entry<Integer, String> e : d.blocks.entrySet()) {
+                        int idx = e.getKey();
+                        if (idx < 0 || idx >= blockCount) continue;
+                        ps.setInt(1, sheetId); ps.setInt(2, idx);
+                        ps.setLong(3, utf8Length(e.getValue())); ps.setObject(4, SheetCodec.encode(e.getValue()));
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            // same size_bytes the equivalent csv (header + '\n' + blocks) would have
+            try (PreparedStatement ps = c.prepareStatement(
+                    "UPDATE sheets SET size_bytes = ? + (SELECT IFNULL(SUM(bytes), 0) FROM sheet_blocks WHERE sheet_id = ?) WHERE id = ?")) {
+                ps.setLong(1, utf8Length(d.header) + 1); ps.setInt(2, sheetId); ps.setInt(3, sheetId);
+                ps.executeUpdate();
+            }
+            return sheetId;
+        });
+        setLastSheetId(id);
+        return id;
+    }
+
+    private static void deleteBlocks(Connection c, int sheetId, int fromBlock) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement("DELETE FROM sheet_blocks WHERE sheet_id = ? AND block_idx >= ?")) {
+            ps.setInt(1, sheetId); ps.setInt(2, fromBlock);
+            ps.executeUpdate();
         }
-        return -1;
     }
 
-    public static void updateSheet(int id, String csv) throws SQLException {
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement("UPDATE sheets SET csv = ?, updated_at = ? WHERE id = ?")) {
-            ps.setString(1, csv); ps.setLong(2, System.currentTimeMillis()); ps.setInt(3, id); ps.executeUpdate();
-            setLastSheetId(id);
+    // Maps a sheets row (id, name, csv, header, row_blocks); row-block sheets are reassembled into csv.
+    // Text columns may hold SheetCodec BLOBs; size_bytes always counts the decoded UTF-8 text.
+    private static SheetRecord read(Connection c, ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
+        String name = rs.getString("name");
+        if (rs.getInt("row_blocks") != 1) return new SheetRecord(id, name, SheetCodec.decode(rs.getObject("csv")));
+        StringBuilder sb = new StringBuilder();
+        String header = rs.getString("header");
+        sb.append(header == null ? "" : header).append('\n');
+        try (PreparedStatement ps = c.prepareStatement("SELECT data FROM sheet_blocks WHERE sheet_id = ? ORDER BY block_idx")) {
+            ps.setInt(1, id);
+            try (ResultSet b = ps.executeQuery()) {
+                while (b.next()) sb.append(SheetCodec.decode(b.getObject(1)));
+            }
         }
+        return new SheetRecord(id, name, sb.toString(), true);
     }
 
+    static final String SQL_LIST_SHEETS = "SELECT id,name,csv,header,row_blocks,updated_at FROM sheets ORDER BY updated_at DESC";
+
     public static List<SheetRecord> listSheets() {
         List<SheetRecord> out = new ArrayList<>();
-        try (Connection c = Database.getConnection();
+        try (Connection c = Database.getReadConnection();
              Statement s = c.createStatement();
-             ResultSet rs = s.executeQuery("SELECT id,name,csv,updated_at FROM sheets ORDER BY updated_at DESC")) {
-            while (rs.next()) out.add(new SheetRecord(rs.getInt("id"), rs.getString("name"), rs.getString("csv")));
+             ResultSet rs = s.executeQuery(SQL_LIST_SHEETS)) {
+            while (rs.next()) out.add(read(c, rs));
         } catch (Exception e) { e.printStackTrace(); }
         return out;
     }
 
+    // Keyset-paginated / streaming variant of listSheets (same updated_at DESC ordering, id breaks ties)
+    private static KeysetQuery<SheetRecord> sheetsQuery() {
+        return new KeysetQuery<>("SELECT id,name,csv,header,row_blocks,updated_at FROM sheets WHERE 1 = 1",
+                new Object[0], new String[]{"updated_at", "id"}, true,
+                rs -> read(rs.getStatement().getConnection(), rs));
+    }
+
+    public static Page<SheetRecord> pageSheets(Page.Cursor after, int pageSize) {
+        try { return sheetsQuery().page(after, pageSize); } catch (Exception e) { e.printStackTrace(); return Page.empty(); }
+    }
+
+    public static Stream<SheetRecord> streamSheets() {
+        return sheetsQuery().stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
+    // Metadata-only listing for sheet pickers: never reads the csv column.
+    static final String SQL_LIST_SHEET_META = "SELECT id,name,size_bytes,row_count,col_count,updated_at FROM sheets ORDER BY updated_at DESC";
+
+    public static List<SheetMeta> listSheetMeta() {
+        List<SheetMeta> out = new ArrayList<>();
+        try (Connection c = Database.getReadConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery(SQL_LIST_SHEET_META)) {
+            while (rs.next()) out.add(new SheetMeta(rs.getInt("id"), rs.getString("name"), rs.getLong("size_bytes"),
+                    rs.getInt("row_count"), rs.getInt("col_count"), rs.getLong("updated_at")));
+        } catch (Exception e) { e.printStackTrace(); }
+        return out;
+    }
+
+    // Lazy content fetch for a sheet picked from listSheetMeta(); null when missing.
+    public static String loadCsv(int id) {
+        SheetRecord r = getSheetById(id);
+        return r == null ? null : r.csv;
+    }
+
     public static SheetRecord getSheetById(int id) {
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement("SELECT id,name,csv FROM sheets WHERE id = ?")) {
+        try (Connection c = Database.getReadConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT id,name,csv,header,row_blocks FROM sheets WHERE id = ?")) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return new SheetRecord(rs.getInt("id"), rs.getString("name"), rs.getString("csv"));
+                if (rs.next()) return read(c, rs);
             }
         } catch (Exception e) { e.printStackTrace(); }
         return null;
@@ -64,33 +225,79 @@ public final class SheetDAO {
             SheetRecord r = getSheetById(id);
             if (r != null) return r;
         }
-        // fallback to latest updated
-        List<SheetRecord> all = listSheets();
-        return all.isEmpty() ? null : all.get(0);
+        // fallback to latest updated; only that one sheet's csv is read
+        try (Connection c = Database.getReadConnection();
+             Statement s = c.createStatement();
+             ResultSet rs = s.executeQuery("SELECT id FROM sheets ORDER BY updated_at DESC, id DESC LIMIT 1")) {
+            if (rs.next()) return getSheetById(rs.getInt(1));
+        } catch (Exception e) { e.printStackTrace(); }
+        return null;
     }
 
+    // stored in settings; goes through SettingsDAO so reads hit its cache
     private static void setLastSheetId(int id) {
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement(
-                     "INSERT INTO settings(key,value) VALUES('last_sheet_id',?) " +
-                             "ON CONFLICT(key) DO UPDATE SET value=excluded.value")) {
-            ps.setString(1, String.valueOf(id));
-            ps.executeUpdate();
-        } catch (Exception ignored) {}
+        if (SettingsDAO.getInt("last_sheet_id", -1) != id) SettingsDAO.setInt("last_sheet_id", id);
     }
 
     private static Integer getLastSheetId() {
-        try (Connection c = Database.getConnection();
-             PreparedStatement ps = c.prepareStatement("SELECT value FROM settings WHERE key = 'last_sheet_id'")) {
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) return Integer.valueOf(rs.getString(1));
+        int id = SettingsDAO.getInt("last_sheet_id", -1);
+        return id > 0 ? id : null;
+    }
+
+    // UTF-8 byte length without allocating an encoded copy
+    static long utf8Length(String s) {
+        if (s == null) return 0;
+        long n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) n++;
+            else if (ch < 0x800) n += 2;
+            else if (Character.isHighSurrogate(ch) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) { n += 4; i++; }
+            else n += 3;
+        }
+        return n;
+    }
+
+    // {records, columns of the first record}; quote-aware so embedded commas/newlines don't count
+    static int[] shape(String csv) {
+        if (csv == null || csv.isEmpty()) return new int[]{0, 0};
+        int rows = 0, cols = 1;
+        boolean inQuotes = false, firstRow = true, lineHasData = false;
+        for (int i = 0; i < csv.length(); i++) {
+            char ch = csv.charAt(i);
+            if (ch == '"') {
+                inQuotes = !inQuotes; // "" inside quotes toggles twice, which is a no-op
+                lineHasData = true;
+            } else if (!inQuotes && ch == ',') {
+                if (firstRow) cols++;
+                lineHasData = true;
+            } else if (!inQuotes && ch == '\n') {
+                rows++;
+                firstRow = false;
+                lineHasData = false;
+            } else if (ch != '\r') {
+                lineHasData = true;
             }
-        } catch (Exception ignored) {}
-        return null;
+        }
+        if (lineHasData) rows++;
+        return new int[]{rows, cols};
+    }
+
+    public static class SheetMeta {
+        public final int id; public final String name;
+        public final long sizeBytes; public final int rowCount, colCount; public final long updatedAt;
+        public SheetMeta(int id, String name, long sizeBytes, int rowCount, int colCount, long updatedAt) {
+            this.id = id; this.name = name; this.sizeBytes = sizeBytes; this.rowCount = rowCount; this.colCount = colCount; this.updatedAt = updatedAt;
+        }
     }
 
     public static class SheetRecord {
         public final int id; public final String name; public final String csv;
-        public SheetRecord(int id, String name, String csv) { this.id = id; this.name = name; this.csv = csv; }
+        // true when the sheet is stored as row blocks; csv then always starts with the header line
+        public final boolean rowBlocks;
+        public SheetRecord(int id, String name, String csv) { this(id, name, csv, false); }
+        public SheetRecord(int id, String name, String csv, boolean rowBlocks) {
+            this.id = id; this.name = name; this.csv = csv; this.rowBlocks = rowBlocks;
+        }
     }
 }
\ No newline at end of file
@@ -2,11 +2,15 @@ package main.db;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
 
 /**
  * TaskDAO: handles SQLExceptions internally so UI callers don't need to catch them.
- * - Creates tasks table with workflow_id (default 0)
+ * - The tasks table (with workflow_id, default 0) is created by SchemaMigrations
  * - Public methods return safe defaults on error.
  */
 public final class TaskDAO {
@@ -34,72 +38,75 @@ public final class TaskDAO {
         }
     }
 
-    static {
-        ensureTable();
-    }
-
     private static Connection conn() throws SQLException {
         return Database.getConnection();
     }
 
-    private static void ensureTable() {
-        String sql = "CREATE TABLE IF NOT EXISTS tasks (" +
-                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                "text TEXT DEFAULT ''," +
-                "checked INTEGER DEFAULT 0," +
-                "ord INTEGER DEFAULT 0," +
-                "workflow_id INTEGER DEFAULT 0," +
-                "created_at INTEGER DEFAULT 0," +
-                "last_reminder_sent INTEGER DEFAULT 0" +
-                ")";
-        try (Connection c = conn(); Statement s = c.createStatement()) {
-            s.execute(sql);
-        } catch (Exception ignored) { /* ignore initialization errors */ }
+    /** Notified after a commit that inserted, changed or deleted the given task ids. */
+    public interface ChangeListener {
+        void tasksChanged(Collection<Integer> ids);
+    }
+
+    private static final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    public static void addChangeListener(ChangeListener l) { listeners.add(l); }
+
+    public static void removeChangeListener(ChangeListener l) { listeners.remove(l); }
+
+    private static void fireChanged(Collection<Integer> ids) {
+        if (ids.isEmpty() || listeners.isEmpty()) return;
+        Collection<Integer> snapshot = List.copyOf(ids);
+        Database.afterCommit(() -> {
+            for (ChangeListener l : listeners) l.tasksChanged(snapshot);
+        });
+    }
+
+    private static TaskRecord read(ResultSet rs) throws SQLException {
+        return new TaskRecord(
+                rs.getInt("id"),
+                rs.getString("text"),
+                rs.getInt("checked") != 0,
+                rs.getInt("ord"),
+                rs.getInt("workflow_id"),
+                rs.getLong("created_at"),
+                rs.getLong("last_reminder_sent"),
+                rs.getInt("reminder_window_minutes"));
     }
 
     // Legacy: returns all tasks (on error returns empty list)
     public static List<TaskRecord> listAll() {
         String q = "SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks ORDER BY ord ASC, id ASC";
         List<TaskRecord> out = new ArrayList<>();
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(q);
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q);
              ResultSet rs = ps.executeQuery()) {
-            while (rs.next()) {
-                out.add(new TaskRecord(
-                        rs.getInt("id"),
-                        rs.getString("text"),
-                        rs.getInt("checked") != 0,
-                        rs.getInt("ord"),
-                        rs.getInt("workflow_id"),
-                        rs.getLong("created_at"),
-                        rs.getLong("last_reminder_sent"),
-                        rs.getInt("reminder_window_minutes")
-                ));
-            }
+            while (rs.next()) out.add(read(rs));
         } catch (Exception ex) {
             // return empty list on error
         }
         return out;
     }
 
+    static final String SQL_LIST_FOR_WORKFLOW = "SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks WHERE workflow_id = ? ORDER BY ord ASC, id ASC";
+    // Effective due time = created_at + (per-task window, else the global window) minutes.
+    // Each branch is served by its own partial index (idx_tasks_reminder_open / idx_tasks_reminder_custom);
+    // the predicates are written to match those index definitions exactly.
+    static final String SQL_NEEDING_REMINDER =
+            "SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks " +
+            "WHERE checked = 0 AND IFNULL(last_reminder_sent, 0) = 0 AND created_at > 0 AND created_at <= ? " +
+            "AND IFNULL(reminder_window_minutes, 0) <= 0 " +
+            "UNION ALL " +
+            "SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks " +
+            "WHERE checked = 0 AND IFNULL(last_reminder_sent, 0) = 0 AND reminder_window_minutes > 0 AND created_at > 0 " +
+            "AND created_at + reminder_window_minutes * 60 <= ?";
+
     // List tasks for a workflow (workflowId==0 -> tasks with workflow_id = 0)
     public static List<TaskRecord> listForWorkflow(int workflowId) {
-        String q = "SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks WHERE workflow_id = ? ORDER BY ord ASC, id ASC";
+        String q = SQL_LIST_FOR_WORKFLOW;
         List<TaskRecord> out = new ArrayList<>();
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(q)) {
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q)) {
             ps.setInt(1, workflowId);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(new TaskRecord(
-                            rs.getInt("id"),
-                            rs.getString("text"),
-                            rs.getInt("checked") != 0,
-                            rs.getInt("ord"),
-                            rs.getInt("workflow_id"),
-                            rs.getLong("created_at"),
-                            rs.getLong("last_reminder_sent"),
-                            rs.getInt("reminder_window_minutes")
-                    ));
-                }
+                while (rs.next()) out.add(read(rs));
             }
         } catch (Exception ex) {
             // return empty on error
@@ -107,6 +114,34 @@ public final class TaskDAO {
         return out;
     }
 
+    // Keyset-paginated / streaming variants of listAll and listForWorkflow (same ord, id ordering).
+    // Streams fetch one page at a time; a page is null-safe to continue with page.next.
+    private static KeysetQuery<TaskRecord> allQuery() {
+        return new KeysetQuery<>("SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks WHERE 1 = 1",
+                new Object[0], new String[]{"ord", "id"}, false, TaskDAO::read);
+    }
+
+    private static KeysetQuery<TaskRecord> workflowQuery(int workflowId) {
+        return new KeysetQuery<>("SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks WHERE workflow_id = ?",
+                new Object[]{workflowId}, new String[]{"ord", "id"}, false, TaskDAO::read);
+    }
+
+    public static Page<TaskRecord> pageAll(Page.Cursor after, int pageSize) {
+        try { return allQuery().page(after, pageSize); } catch (Exception ex) { return Page.empty(); }
+    }
+
+    public static Stream<TaskRecord> streamAll() {
+        return allQuery().stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
+    public static Page<TaskRecord> pageForWorkflow(int workflowId, Page.Cursor after, int pageSize) {
+        try { return workflowQuery(workflowId).page(after, pageSize); } catch (Exception ex) { return Page.empty(); }
+    }
+
+    public static Stream<TaskRecord> streamForWorkflow(int workflowId) {
+        return workflowQuery(workflowId).stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
     // Legacy insert -> inserts with workflow_id = 0
     public static int insert(String text, boolean checked, int ord) {
         return insert(text, checked, ord, 0);
@@ -114,36 +149,156 @@ public final class TaskDAO {
 
     // Insert with workflow scope; returns generated id or -1 on error
     public static int insert(String text, boolean checked, int ord, int workflowId) {
-        String sql = "INSERT INTO tasks(text, checked, ord, workflow_id, created_at, last_reminder_sent) VALUES (?, ?, ?, ?, ?, ?)";
+        int[] ids = insertAll(List.of(new TaskRecord(0, text, checked, ord, workflowId, 0L, 0L, 0)));
+        return ids.length == 1 ? ids[0] : -1;
+    }
+
+    // Update (silent on error)
+    public static void update(int id, String text, boolean checked, int ord) {
+        updateAll(List.of(new TaskRecord(id, text, checked, ord, 0, 0L, 0L, 0)));
+    }
+
+    // Values bound per row by insertAll's multi-row INSERT (text, checked, ord, workflow_id, created_at).
+    private static final int INSERT_PARAMS_PER_ROW = 5;
+    // Bound values per statement; well under SQLite's default limit of 32766.
+    private static final int MAX_BOUND_PARAMS = 2500;
+    // Rows per multi-row INSERT (also ids per IN list in queryByIds).
+    private static final int INSERT_CHUNK = MAX_BOUND_PARAMS / INSERT_PARAMS_PER_ROW;
+
+    /**
+     * Inserts all tasks in one transaction using multi-row INSERT ... RETURNING.
+     * Record ids are ignored; createdAt == 0 means "now".
+     * Returns the generated ids in input order, or an empty array on error (nothing is inserted).
+     */
+    public static int[] insertAll(List<TaskRecord> tasks) {
+        if (tasks == null || tasks.isEmpty()) return new int[0];
         long now = System.currentTimeMillis() / 1000L;
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, text == null ? "" : text);
-            ps.setInt(2, checked ? 1 : 0);
-            ps.setInt(3, ord);
-            ps.setInt(4, workflowId);
-            ps.setLong(5, now);
-            ps.setLong(6, 0L);
-            ps.executeUpdate();
-            try (ResultSet keys = ps.getGeneratedKeys()) {
-                if (keys.next()) return keys.getInt(1);
-            }
+        try {
+            return Database.inTransaction(c -> {
+                int[] ids = new int[tasks.size()];
+                for (int from = 0; from < tasks.size(); from += INSERT_CHUNK) {
+                    int to = Math.min(tasks.size(), from + INSERT_CHUNK);
+                    StringBuilder sql = new StringBuilder("INSERT INTO tasks(text, checked, ord, workflow_id, created_at, last_reminder_sent) VALUES ");
+                    for (int i = from; i < to; i++) sql.append(i == from ? "(?, ?, ?, ?, ?, 0)" : ", (?, ?, ?, ?, ?, 0)");
+                    sql.append(" RETURNING id");
+                    try (PreparedStatement ps = c.prepareStatement(sql.toString())) {
+                        int p = 1;
+                        for (int i = from; i < to; i++) {
+                            TaskRecord t = tasks.get(i);
+                            ps.setString(p++, t.text == null ? "" : t.text);
+                            ps.setInt(p++, t.checked ? 1 : 0);
+                            ps.setInt(p++, t.ord);
+                            ps.setInt(p++, t.workflowId);
+                            ps.setLong(p++, t.createdAt > 0 ? t.createdAt : now);
+                        }
+                        // AUTOINCREMENT ids are handed out in VALUES order, but RETURNING
+                        // rows are not guaranteed to come back in that order - so sort.
+                        int n = from;
+                        try (ResultSet rs = ps.executeQuery()) {
+                            while (rs.next()) ids[n++] = rs.getInt(1);
+                        }
+                        if (n != to) throw new SQLException("expected " + (to - from) + " generated ids, got " + (n - from));
+                        Arrays.sort(ids, from, to);
+                    }
+                }
+                List<Integer> changed = new ArrayList<>(ids.length);
+                for (int id : ids) changed.add(id);
+                fireChanged(changed);
+                return ids;
+            });
         } catch (Exception ex) {
-            // ignore and fall through
+            return new int[0];
         }
-        return -1;
     }
 
-    // Update (silent on error)
-    public static void update(int id, String text, boolean checked, int ord) {
+    // Updates text/checked/ord of every record by id in one batch; false on error (nothing is written).
+    public static boolean updateAll(List<TaskRecord> tasks) {
+        if (tasks == null || tasks.isEmpty()) return true;
         String sql = "UPDATE tasks SET text = ?, checked = ?, ord = ? WHERE id = ?";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, text == null ? "" : text);
-            ps.setInt(2, checked ? 1 : 0);
-            ps.setInt(3, ord);
-            ps.setInt(4, id);
-            ps.executeUpdate();
+        try {
+            return Database.inTransaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (TaskRecord t : tasks) {
+                        ps.setString(1, t.text == null ? "" : t.text);
+                        ps.setInt(2, t.checked ? 1 : 0);
+                        ps.setInt(3, t.ord);
+                        ps.setInt(4, t.id);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                List<Integer> changed = new ArrayList<>(tasks.size());
+                for (TaskRecord t : tasks) changed.add(t.id);
+                fireChanged(changed);
+                return true;
+            });
         } catch (Exception ex) {
-            // ignore
+            return false;
+        }
+    }
+
+    // Sets only the checked flag of every id, leaving text and ord alone; false on error (nothing is written).
+    public static boolean setCheckedAll(Collection<Integer> ids, boolean checked) {
+        if (ids == null || ids.isEmpty()) return true;
+        String sql = "UPDATE tasks SET checked = ? WHERE id = ?";
+        try {
+            return Database.inTransaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (int id : ids) {
+                        ps.setInt(1, checked ? 1 : 0);
+                        ps.setInt(2, id);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                fireChanged(ids);
+                return true;
+            });
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    // Deletes all ids in one batch; false on error (nothing is deleted).
+    public static boolean deleteAll(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) return true;
+        String sql = "DELETE FROM tasks WHERE id = ?";
+        try {
+            return Database.inTransaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (int id : ids) {
+                        ps.setInt(1, id);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                fireChanged(ids);
+                return true;
+            });
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    // Sets ord = list position for each id (e.g. after drag & drop); false on error.
+    public static boolean reorder(List<Integer> orderedIds) {
+        if (orderedIds == null || orderedIds.isEmpty()) return true;
+        String sql = "UPDATE tasks SET ord = ? WHERE id = ?";
+        try {
+            return Database.inTransaction(c -> {
+                try (PreparedStatement ps = c.prepareStatement(sql)) {
+                    for (int i = 0; i < orderedIds.size(); i++) {
+                        ps.setInt(1, i);
+                        ps.setInt(2, orderedIds.get(i));
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+                fireChanged(orderedIds);
+                return true;
+            });
+        } catch (Exception ex) {
+            return false;
         }
     }
 
@@ -152,40 +307,90 @@ public final class TaskDAO {
         return listTasksNeedingReminderMinutes(1440);
     }
 
-    // Return tasks that need a reminder based on a configurable window (minutes)
+    // Return tasks that need a reminder. A task's own reminder_window_minutes wins;
+    // tasks without one (0) use the global window passed in (minutes).
     public static List<TaskRecord> listTasksNeedingReminderMinutes(int minutes) {
-        String q = "SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks WHERE checked = 0 AND created_at > 0 AND created_at <= ? AND (last_reminder_sent IS NULL OR last_reminder_sent = 0)";
+        try {
+            return queryTasksNeedingReminder(minutes, System.currentTimeMillis() / 1000L);
+        } catch (Exception ex) {
+            // ignore
+            return new ArrayList<>();
+        }
+    }
+
+    // Same as listTasksNeedingReminderMinutes, but as of the given epoch second, and a failed query
+    // throws instead of looking like "none due"
+    static List<TaskRecord> queryTasksNeedingReminder(int minutes, long now) throws SQLException {
+        String q = SQL_NEEDING_REMINDER;
         List<TaskRecord> out = new ArrayList<>();
-        long cutoff = (System.currentTimeMillis() / 1000L) - (long) minutes * 60L;
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(q)) {
+        long cutoff = now - (long) minutes * 60L;
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q)) {
             ps.setLong(1, cutoff);
+            ps.setLong(2, now);
             try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    out.add(new TaskRecord(
-                            rs.getInt("id"),
-                            rs.getString("text"),
-                            rs.getInt("checked") != 0,
-                            rs.getInt("ord"),
-                            rs.getInt("workflow_id"),
-                            rs.getLong("created_at"),
-                            rs.getLong("last_reminder_sent"),
-                            rs.getInt("reminder_window_minutes")
-                    ));
-                }
+                while (rs.next()) out.add(read(rs));
             }
+        }
+        return out;
+    }
+
+    // Open tasks that have not been reminded yet, regardless of age (served by idx_tasks_reminder_open)
+    static final String SQL_REMINDER_CANDIDATES = "SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks WHERE checked = 0 AND IFNULL(last_reminder_sent, 0) = 0 AND created_at > 0";
+
+    static List<TaskRecord> listReminderCandidates() throws SQLException {
+        List<TaskRecord> out = new ArrayList<>();
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(SQL_REMINDER_CANDIDATES);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) out.add(read(rs));
+        }
+        return out;
+    }
+
+    // Tasks with the given ids (missing ids are skipped); empty list on error
+    public static List<TaskRecord> listByIds(Collection<Integer> ids) {
+        try {
+            return queryByIds(ids);
         } catch (Exception ex) {
             // ignore
+            return new ArrayList<>();
+        }
+    }
+
+    // Same as listByIds, but a failed query throws instead of looking like "all deleted"
+    static List<TaskRecord> queryByIds(Collection<Integer> ids) throws SQLException {
+        List<TaskRecord> out = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) return out;
+        List<Integer> all = new ArrayList<>(ids);
+        try (Connection c = Database.getReadConnection()) {
+            for (int from = 0; from < all.size(); from += INSERT_CHUNK) {
+                int to = Math.min(all.size(), from + INSERT_CHUNK);
+                StringBuilder q = new StringBuilder("SELECT id, text, checked, ord, workflow_id, created_at, last_reminder_sent, reminder_window_minutes FROM tasks WHERE id IN (");
+                for (int i = from; i < to; i++) q.append(i == from ? "?" : ",?");
+                q.append(')');
+                try (PreparedStatement ps = c.prepareStatement(q.toString())) {
+                    for (int i = from; i < to; i++) ps.setInt(i - from + 1, all.get(i));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) out.add(read(rs));
+                    }
+                }
+            }
         }
         return out;
     }
 
+    // Epoch seconds at which a task becomes due for a reminder (per-task window, else globalMinutes)
+    public static long reminderDueAt(TaskRecord t, int globalMinutes) {
+        int window = t.reminderWindowMinutes > 0 ? t.reminderWindowMinutes : globalMinutes;
+        return t.createdAt + (long) window * 60L;
+    }
+
     // set per-task reminder window (minutes)
     public static void setReminderWindowMinutes(int id, int minutes) {
         String sql = "UPDATE tasks SET reminder_window_minutes = ? WHERE id = ?";
         try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setInt(1, minutes);
             ps.setInt(2, id);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) fireChanged(List.of(id));
         } catch (Exception ex) {
             // ignore
         }
@@ -197,7 +402,7 @@ public final class TaskDAO {
         try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
             ps.setLong(1, epochSeconds);
             ps.setInt(2, id);
-            ps.executeUpdate();
+            if (ps.executeUpdate() > 0) fireChanged(List.of(id));
         } catch (Exception ex) {
             // ignore
         }
@@ -205,12 +410,6 @@ public final class TaskDAO {
 
     // Delete (silent on error)
     public static void delete(int id) {
-        String sql = "DELETE FROM tasks WHERE id = ?";
-        try (Connection c = conn(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            ps.executeUpdate();
-        } catch (Exception ex) {
-            // ignore
-        }
+        deleteAll(List.of(id));
     }
 }
\ No newline at end of file
@@ -0,0 +1,271 @@
+package main.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind queue for task edits coming from the UI thread.
+ * - Repeated updates to the same task id are coalesced; a delete supersedes pending updates, and
+ *   updates queued after a pending delete are dropped (the task is gone).
+ * - setChecked only touches the checked flag: it folds into a pending update's text and ord, so
+ *   callers holding an older copy of the task (the reminder popup) can't undo a queued edit.
+ * - Pending ops are flushed in one transaction on a background thread at most maxLatencyMillis
+ *   after the first of them was queued (or sooner once maxBatch ops are waiting).
+ * - A failed flush is retried with exponential backoff; after MAX_ATTEMPTS failures in a row the
+ *   ops are written one by one, and those that still fail are logged and dropped.
+ * - Inserts are not queued: callers need the generated id immediately, use TaskDAO.insert.
+ * - Database.shutdown() drains the queue before closing the pool.
+ */
+public final class TaskWriteQueue {
+
+    /** Point-in-time snapshot of queue counters. */
+    public static final class Stats {
+        public final int depth;
+        public final long enqueued, coalesced, flushes, flushedOps, failedFlushes, droppedOps;
+        public final double lastFlushMillis, maxFlushMillis, avgFlushMillis;
+
+        Stats(int depth, long enqueued, long coalesced, long flushes, long flushedOps, long failedFlushes, long droppedOps,
+              double lastFlushMillis, double maxFlushMillis, double avgFlushMillis) {
+            this.depth = depth; this.enqueued = enqueued; this.coalesced = coalesced;
+            this.flushes = flushes; this.flushedOps = flushedOps; this.failedFlushes = failedFlushes; this.droppedOps = droppedOps;
+            this.lastFlushMillis = lastFlushMillis; this.maxFlushMillis = maxFlushMillis; this.avgFlushMillis = avgFlushMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth=%d, enqueued=%d, coalesced=%d, flushes=%d (%d ops, %d failed, %d ops dropped), flushMs last=%.2f max=%.2f avg=%.2f",
+                    depth, enqueued, coalesced, flushes, flushedOps, failedFlushes, droppedOps, lastFlushMillis, maxFlushMillis, avgFlushMillis);
+        }
+    }
+
+    // text/checked/ord are copied at enqueue time; the UI keeps mutating its TaskRecord.
+    // An update with text == null sets checked only.
+    private static final class Op {
+        final int id;
+        final boolean delete;
+        final String text;
+        final boolean checked;
+        final int ord;
+        Op(int id, boolean delete, String text, boolean checked, int ord) {
+            this.id = id; this.delete = delete; this.text = text; this.checked = checked; this.ord = ord;
+        }
+    }
+
+    // consecutive failed flushes before the ops are written one by one
+    static final int MAX_ATTEMPTS = 5;
+    private static final long MAX_RETRY_DELAY_MILLIS = 30_000L;
+
+    private static TaskWriteQueue instance; // guarded by TaskWriteQueue.class
+
+    private final long maxLatencyMillis;
+    private final int maxBatch;
+    private final ScheduledExecutorService exec;
+
+    private final Object lock = new Object();
+    private LinkedHashMap<Integer, Op> pending = new LinkedHashMap<>(); // guarded by lock
+    private boolean flushScheduled; // guarded by lock
+    private boolean closed; // guarded by lock
+    private int failedAttempts; // consecutive failed flushes, guarded by lock
+
+    // metrics, guarded by lock
+    private long enqueued, coalesced, flushes, flushedOps, failedFlushes, droppedOps;
+    private long lastFlushNanos, maxFlushNanos, totalFlushNanos;
+
+    TaskWriteQueue(long maxLatencyMillis, int maxBatch) {
+        this.maxLatencyMillis = Math.max(0L, maxLatencyMillis);
+        this.maxBatch = Math.max(1, maxBatch);
+        this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SolFlow-task-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // -Dsolflow.db.writeBehindLatencyMs=250 -Dsolflow.db.writeBehindMaxBatch=500
+    public static synchronized TaskWriteQueue get() {
+        if (instance == null) {
+            instance = new TaskWriteQueue(
+                    Long.getLong("solflow.db.writeBehindLatencyMs", 250L),
+                    Integer.getInteger("solflow.db.writeBehindMaxBatch", 500));
+        }
+        return instance;
+    }
+
+    // Called from Database.shutdown(); flushes whatever is still pending.
+    static void shutdownIfStarted() {
+        TaskWriteQueue q;
+        synchronized (TaskWriteQueue.class) {
+            q = instance;
+            instance = null;
+        }
+        if (q != null) q.shutdown();
+    }
+
+    public void update(int id, String text, boolean checked, int ord) {
+        if (id <= 0) return;
+        enqueue(new Op(id, false, text == null ? "" : text, checked, ord));
+    }
+
+    public void setChecked(int id, boolean checked) {
+        if (id <= 0) return;
+        enqueue(new Op(id, false, null, checked, 0));
+    }
+
+    public void delete(int id) {
+        if (id <= 0) return;
+        enqueue(new Op(id, true, null, false, 0));
+    }
+
+    private void enqueue(Op op) {
+        synchronized (lock) {
+            if (!closed) {
+                enqueued++;
+                if (merge(pending, op)) coalesced++;
+                if (pending.size() >= maxBatch) {
+                    exec.execute(this::flushPending);
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    exec.schedule(this::flushPending, maxLatencyMillis, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+        }
+        // after shutdown there is no writer thread left; write through
+        if (op.delete) TaskDAO.delete(op.id);
+        else if (op.text == null) TaskDAO.setCheckedAll(List.of(op.id), op.checked);
+        else TaskDAO.update(op.id, op.text, op.checked, op.ord);
+    }
+
+    // Adds op to ops; true if it replaced or was absorbed by a pending op for the same id.
+    private static boolean merge(Map<Integer, Op> ops, Op op) {
+        Op prev = ops.get(op.id);
+        if (prev != null && prev.delete && !op.delete) return true; // the task is already going away
+        if (prev != null && prev.text != null && !op.delete && op.text == null) {
+            op = new Op(op.id, false, prev.text, op.checked, prev.ord); // keep the pending edit
+        }
+        ops.put(op.id, op);
+        return prev != null;
+    }
+
+    /** Blocks until everything queued before this call is committed (or the flush failed). */
+    public void flush() {
+        try {
+            exec.submit(this::flushPending).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException ignored) {
+            // nothing more we can do from here; pending ops stay queued for the next flush
+        }
+    }
+
+    public int depth() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    // runs on the writer thread only
+    private void flushPending() {
+        Map<Integer, Op> batch;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pending.isEmpty()) return;
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+        long t0 = System.nanoTime();
+        boolean ok = write(batch.values());
+        long elapsed = System.nanoTime() - t0;
+        synchronized (lock) {
+            if (ok) {
+                failedAttempts = 0;
+                flushes++;
+                flushedOps += batch.size();
+                lastFlushNanos = elapsed;
+                maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+                totalFlushNanos += elapsed;
+                return;
+            }
+            failedFlushes++;
+            if (!closed && ++failedAttempts < MAX_ATTEMPTS) {
+                // put the batch back; ops queued for the same ids meanwhile merge on top of it
+                LinkedHashMap<Integer, Op> merged = new LinkedHashMap<>(batch);
+                for (Op op : pending.values()) merge(merged, op);
+                pending = merged;
+                long delay = Math.min(MAX_RETRY_DELAY_MILLIS, Math.max(1000L, maxLatencyMillis) << (failedAttempts - 1));
+                flushScheduled = true;
+                exec.schedule(this::flushPending, delay, TimeUnit.MILLISECONDS);
+                return;
+            }
+            failedAttempts = 0;
+        }
+        // keeps failing (or this is the final flush): one op at a time, so a bad op can't hold back the rest
+        for (Op op : batch.values()) {
+            boolean written = write(List.of(op));
+            synchronized (lock) {
+                if (written) flushedOps++;
+                else droppedOps++;
+            }
+            if (!written) {
+                System.err.println("[SolFlow] dropping queued task " + (op.delete ? "delete" : "update")
+                        + " for id " + op.id + " after " + MAX_ATTEMPTS + " failed flushes");
+            }
+        }
+    }
+
+    // Writes ops in one transaction; false (and nothing written) on error.
+    private static boolean write(Collection<Op> ops) {
+        List<TaskDAO.TaskRecord> updates = new ArrayList<>();
+        List<Integer> deletes = new ArrayList<>();
+        List<Integer> checkedOn = new ArrayList<>();
+        List<Integer> checkedOff = new ArrayList<>();
+        for (Op op : ops) {
+            if (op.delete) deletes.add(op.id);
+            else if (op.text == null) (op.checked ? checkedOn : checkedOff).add(op.id);
+            else updates.add(new TaskDAO.TaskRecord(op.id, op.text, op.checked, op.ord, 0, 0L, 0L, 0));
+        }
+        try {
+            return Database.inTransaction(c -> {
+                // all join this transaction; a false return rolls the whole flush back
+                if (!TaskDAO.updateAll(updates) || !TaskDAO.setCheckedAll(checkedOn, true)
+                        || !TaskDAO.setCheckedAll(checkedOff, false) || !TaskDAO.deleteAll(deletes)) {
+                    throw new SQLException("task flush failed");
+                }
+                return true;
+            });
+        } catch (SQLException | RuntimeException ex) {
+            return false;
+        }
+    }
+
+    private void shutdown() {
+        synchronized (lock) {
+            closed = true;
+        }
+        try {
+            exec.submit(this::flushPending).get(30, TimeUnit.SECONDS);
+        } catch (Exception ignored) {
+            // best effort
+        } finally {
+            exec.shutdownNow();
+        }
+    }
+
+    public Stats stats() {
+        synchronized (lock) {
+            double avg = flushes == 0 ? 0 : totalFlushNanos / 1e6 / flushes;
+            return new Stats(pending.size(), enqueued, coalesced, flushes, flushedOps, failedFlushes, droppedOps,
+                    lastFlushNanos / 1e6, maxFlushNanos / 1e6, avg);
+        }
+    }
+}
@@ -42,7 +42,7 @@ public final class UserDAO {
     }
 
     public static User getByUsername(String username) {
-        try (Connection c = Database.getConnection();
+        try (Connection c = Database.getReadConnection();
              PreparedStatement ps = c.prepareStatement("SELECT id, username FROM users WHERE username = ?")) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
@@ -63,7 +63,7 @@ public final class UserDAO {
     }
 
     public static AuthRecord getAuthByUsername(String username) {
-        try (Connection c = Database.getConnection();
+        try (Connection c = Database.getReadConnection();
              PreparedStatement ps = c.prepareStatement("SELECT id, username, password_hash, salt FROM users WHERE username = ?")) {
             ps.setString(1, username);
             try (ResultSet rs = ps.executeQuery()) {
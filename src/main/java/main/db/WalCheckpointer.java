@@ -0,0 +1,78 @@
+package main.db;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background WAL checkpointer. Runs PASSIVE checkpoints on the writer connection only when
+ * it is idle, so commits don't pay for checkpointing and the -wal file stays bounded.
+ * A final TRUNCATE checkpoint runs on shutdown.
+ */
+public final class WalCheckpointer {
+    private final ConnectionPool pool;
+    private final long intervalMillis;
+    private final ScheduledExecutorService exec;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong skippedBusy = new AtomicLong();
+    private volatile long lastWalFrames;
+    private volatile long lastCheckpointedFrames;
+
+    WalCheckpointer(ConnectionPool pool, long intervalMillis) {
+        this.pool = pool;
+        this.intervalMillis = intervalMillis;
+        this.exec = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "SolFlow-wal-checkpoint");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void start() {
+        exec.scheduleWithFixedDelay(() -> checkpoint("PASSIVE", false), intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void stop() {
+        exec.shutdownNow();
+        try {
+            exec.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint("TRUNCATE", true);
+    }
+
+    private void checkpoint(String mode, boolean wait) {
+        Connection c = null;
+        try {
+            c = wait ? pool.acquireWriter() : pool.tryAcquireWriter();
+            if (c == null) {
+                skippedBusy.incrementAndGet();
+                return;
+            }
+            try (Statement s = c.createStatement(); ResultSet rs = s.executeQuery("PRAGMA wal_checkpoint(" + mode + ")")) {
+                if (rs.next()) {
+                    // columns: busy, frames in wal, frames checkpointed
+                    lastWalFrames = rs.getLong(2);
+                    lastCheckpointedFrames = rs.getLong(3);
+                }
+            }
+            runs.incrementAndGet();
+        } catch (SQLException ignored) {
+            // pool closed or database busy; try again next round
+        } finally {
+            if (c != null) try { c.close(); } catch (SQLException ignored) {}
+        }
+    }
+
+    public long getRuns() { return runs.get(); }
+    public long getSkippedBusy() { return skippedBusy.get(); }
+    public long getLastWalFrames() { return lastWalFrames; }
+    public long getLastCheckpointedFrames() { return lastCheckpointedFrames; }
+}
@@ -3,6 +3,7 @@ package main.db;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 public final class WorkflowDAO {
     public static class Workflow {
@@ -57,11 +58,13 @@ public final class WorkflowDAO {
         return listForUser(0);
     }
 
+    static final String SQL_LIST_FOR_USER = "SELECT id,name,created_at FROM workflows WHERE user_id = ? ORDER BY created_at DESC";
+
     // list workflows for a specific user (userId==0 -> global)
     public static List<Workflow> listForUser(int userId) {
         List<Workflow> out = new ArrayList<>();
-        String q = "SELECT id,name,created_at FROM workflows WHERE user_id = ? ORDER BY created_at DESC";
-        try (Connection c = Database.getConnection(); PreparedStatement ps = c.prepareStatement(q)) {
+        String q = SQL_LIST_FOR_USER;
+        try (Connection c = Database.getReadConnection(); PreparedStatement ps = c.prepareStatement(q)) {
             ps.setInt(1, userId);
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) out.add(new Workflow(rs.getInt("id"), rs.getString("name"), rs.getLong("created_at")));
@@ -70,8 +73,23 @@ public final class WorkflowDAO {
         return out;
     }
 
+    // Keyset-paginated / streaming variant of listForUser (same created_at DESC ordering, id breaks ties)
+    private static KeysetQuery<Workflow> userQuery(int userId) {
+        return new KeysetQuery<>("SELECT id,name,created_at FROM workflows WHERE user_id = ?",
+                new Object[]{userId}, new String[]{"created_at", "id"}, true,
+                rs -> new Workflow(rs.getInt("id"), rs.getString("name"), rs.getLong("created_at")));
+    }
+
+    public static Page<Workflow> pageForUser(int userId, Page.Cursor after, int pageSize) {
+        try { return userQuery(userId).page(after, pageSize); } catch (Exception e) { e.printStackTrace(); return Page.empty(); }
+    }
+
+    public static Stream<Workflow> streamForUser(int userId) {
+        return userQuery(userId).stream(KeysetQuery.DEFAULT_PAGE_SIZE);
+    }
+
     public static Workflow getById(int id) {
-        try (Connection c = Database.getConnection();
+        try (Connection c = Database.getReadConnection();
              PreparedStatement ps = c.prepareStatement("SELECT id,name,created_at FROM workflows WHERE id = ?")) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -1,13 +1,10 @@
 package main.ui;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.RoundRectangle2D;
-import java.io.File;
-import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -36,10 +33,8 @@ public class ContentCreatorApp extends JPanel {
     private static final Color HEADER_BG = UITheme.ACCENT.darker();
     private static final Color HEADER_GRADIENT = UITheme.ACCENT;
 
-    // Prefer loading icon from classpath resource; fallback to local file path if provided on disk.
+    // loaded through IconCache (classpath, then src/main/resources for IDE runs)
     private static final String GOOGLE_ICON_RESOURCE = "/assets/google.png";
-    // Optional local fallback path (kept for compatibility with existing setups)
-    private static final String GOOGLE_ICON_FALLBACK = System.getProperty("user.home") + File.separator + "OneDrive" + File.separator + "Documents" + File.separator + "SolFlow" + File.separator + "src" + File.separator + "main" + File.separator + "resources" + File.separator + "assets" + File.separator + "google.png";
 
     public ContentCreatorApp() {
     setLayout(new BorderLayout());
@@ -73,18 +68,9 @@ public class ContentCreatorApp extends JPanel {
         headerActions.setOpaque(false);
         JButton headerAddSmall = createHeaderSmallBtn("+", e -> addBtn.doClick());
         JButton headerGoogleSmall = createHeaderSmallBtn("", e -> googleBtn.doClick());
-        // try to set a small google icon if available (classpath first, then fallback file)
-        try {
-            java.net.URL res = getClass().getResource(GOOGLE_ICON_RESOURCE);
-            Image gi = null;
-            if (res != null) {
-                gi = ImageIO.read(res).getScaledInstance(18, 18, Image.SCALE_SMOOTH);
-            } else {
-                File gf = new File(GOOGLE_ICON_FALLBACK);
-                if (gf.exists()) gi = ImageIO.read(gf).getScaledInstance(18, 18, Image.SCALE_SMOOTH);
-            }
-            if (gi != null) headerGoogleSmall.setIcon(new ImageIcon(gi)); else headerGoogleSmall.setText("G");
-        } catch (Exception ignored) { headerGoogleSmall.setText("G"); }
+        // small google icon if available
+        Icon gi = IconCache.get(GOOGLE_ICON_RESOURCE, 18, 18);
+        if (gi != null) headerGoogleSmall.setIcon(gi); else headerGoogleSmall.setText("G");
         headerActions.add(headerAddSmall);
         headerActions.add(headerGoogleSmall);
         header.add(headerActions, BorderLayout.EAST);
@@ -148,15 +134,9 @@ public class ContentCreatorApp extends JPanel {
             canvas.repaint();
         });
 
-        // google btn action (for demonstration) - show where the icon was loaded from (classpath or fallback)
+        // google btn action (for demonstration) - show which resource the icon came from
         googleBtn.addActionListener(e -> {
-            String src = "(not found)";
-            java.net.URL res = getClass().getResource(GOOGLE_ICON_RESOURCE);
-            if (res != null) src = "classpath:" + GOOGLE_ICON_RESOURCE;
-            else {
-                File f = new File(GOOGLE_ICON_FALLBACK);
-                if (f.exists()) src = f.getAbsolutePath();
-            }
+            String src = IconCache.get(GOOGLE_ICON_RESOURCE, 18, 18) != null ? GOOGLE_ICON_RESOURCE : "(not found)";
             JOptionPane.showMessageDialog(this, "Google icon loaded from:\n" + src, "Icon info", JOptionPane.INFORMATION_MESSAGE);
         });
 
@@ -166,22 +146,10 @@ public class ContentCreatorApp extends JPanel {
 
     private JButton createImageButton(int w, int h) {
         JButton b = new RoundedIconButton("", w, h);
-        try {
-            Image img = null;
-            java.net.URL res = getClass().getResource(GOOGLE_ICON_RESOURCE);
-            if (res != null) {
-                img = ImageIO.read(res);
-            } else {
-                File f = new File(GOOGLE_ICON_FALLBACK);
-                if (f.exists()) img = ImageIO.read(f);
-            }
-            if (img != null) {
-                Image scaled = img.getScaledInstance(w - 12, h - 12, Image.SCALE_SMOOTH);
-                b.setIcon(new ImageIcon(scaled));
-            } else {
-                throw new IOException("icon not found");
-            }
-        } catch (IOException ex) {
+        Icon icon = IconCache.get(GOOGLE_ICON_RESOURCE, w - 12, h - 12);
+        if (icon != null) {
+            b.setIcon(icon);
+        } else {
             // fallback text
             b.setText("G");
             b.setFont(new Font("SansSerif", Font.BOLD, 24));
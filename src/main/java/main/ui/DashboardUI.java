@@ -1,5 +1,7 @@
 package main.ui;
 
+import main.csv.CsvReader;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
@@ -23,8 +25,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.function.Consumer;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.net.URL;
 
 
@@ -597,9 +597,9 @@ class FinancesPanel extends JPanel {
         try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
             for (int row = 0; row < model.getRowCount(); row++) {
                 for (int col = 0; col < model.getColumnCount(); col++) {
-                    // Enclose values with commas in quotes
+                    // Enclose values with commas, quotes or line breaks in quotes (RFC 4180, read back by CsvReader)
                     String value = String.valueOf(model.getValueAt(row, col));
-                    if (value.contains(",")) {
+                    if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
                         writer.print("\"" + value.replace("\"", "\"\"") + "\"");
                     } else {
                         writer.print(value);
@@ -642,12 +642,11 @@ class FinancesPanel extends JPanel {
             return false; // Indicate that data was not loaded
         }
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
+        try (CsvReader reader = CsvReader.open(file)) {
+            String[] rowData;
             model.setRowCount(0); // Clear existing data before loading
-            while ((line = reader.readLine()) != null) {
-                // Split by comma, but not if it's inside quotes
-                String[] rowData = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+            while ((rowData = reader.next()) != null) {
+                // quoted fields come back unquoted, so saving and reloading no longer piles up quotes
                 // Ensure the rowData length matches the model's column count, add empty strings if shorter
                 if (rowData.length < model.getColumnCount()) {
                     String[] newRowData = new String[model.getColumnCount()];
@@ -894,26 +893,17 @@ class CategoryCardPanel extends JPanel {
     private void loadImage(String imagePath) {
         currentImagePath = imagePath;
         if (imagePath != null && !imagePath.isEmpty()) {
-            try {
-                BufferedImage originalImage = ImageIO.read(new File(imagePath));
-                if (originalImage != null) {
-                    // Scale image to fit the label, maintaining aspect ratio
-                    int labelWidth = imageLabel.getPreferredSize().width;
-                    int labelHeight = imageLabel.getPreferredSize().height;
-
-                    Image scaledImage = originalImage.getScaledInstance(labelWidth, labelHeight, Image.SCALE_SMOOTH);
-                    ImageIcon imageIcon = new ImageIcon(scaledImage);
-                    imageLabel.setIcon(imageIcon);
-                    imageLabel.setText("");
-                } else {
-                    imageLabel.setIcon(null);
-                    imageLabel.setText("No Image");
-                }
-            } catch (IOException e) {
-                imageLabel.setIcon(null);
-                imageLabel.setText("Error loading image");
-                e.printStackTrace();
-            }
+            // decoded (or read from the thumbnail cache) in the background, scaled to the label
+            int labelWidth = imageLabel.getPreferredSize().width;
+            int labelHeight = imageLabel.getPreferredSize().height;
+            Icon cached = ThumbnailService.shared().request(new File(imagePath), labelWidth, labelHeight, icon -> {
+                if (!imagePath.equals(currentImagePath)) return; // another image was picked meanwhile
+                imageLabel.setIcon(icon);
+                imageLabel.setText(icon != null ? "" : "No Image");
+            });
+            imageLabel.setIcon(cached);
+            imageLabel.setText(cached != null ? "" : "Loading...");
+            imageLabel.setForeground(new Color(0x9CA3AF));
         } else {
             imageLabel.setIcon(null);
             imageLabel.setText("Add Image"); // Placeholder text when no image
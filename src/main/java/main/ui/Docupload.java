@@ -2,27 +2,29 @@ package main.ui;
 
 import main.db.FileDAO;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.AbstractBorder;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.BufferedImage;
-import java.net.URL;
 import java.io.File;
-import java.io.InputStream;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.awt.Desktop;
 
 public class Docupload extends JPanel {
 
     private enum ViewMode { MINIMAL, MEDIUM }
     private ViewMode viewMode = ViewMode.MEDIUM;
-    private final JPanel listPanel = new JPanel();
+    private final DefaultListModel<File> fileModel = new DefaultListModel<>();
+    private final JList<File> fileList = new JList<>(fileModel);
+    private final FileCardRenderer renderer = new FileCardRenderer();
+    private final JScrollPane listScroll = new JScrollPane();
+    private final JLabel emptyLabel = new JLabel("No uploads", SwingConstants.CENTER);
+    private final Map<File, FileStat> statCache = new HashMap<>(); // EDT only
     private final List<File> uploadedFiles = new ArrayList<>();
     private final int workflowId;
 
@@ -62,8 +64,8 @@ public class Docupload extends JPanel {
 
         JPanel rightTop = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 6));
         rightTop.setOpaque(false);
-        Icon minimalIcon = loadIcon("/assets/grid.png", 20, 20);
-        Icon mediumIcon = loadIcon("/assets/list1.png", 20, 20);
+        Icon minimalIcon = IconCache.get("/assets/grid.png", 20, 20);
+        Icon mediumIcon = IconCache.get("/assets/list1.png", 20, 20);
         JToggleButton minimalBtn = new JToggleButton();
         JToggleButton mediumBtn = new JToggleButton();
         if (minimalIcon != null) minimalBtn.setIcon(minimalIcon); else minimalBtn.setText("Min");
@@ -105,16 +107,20 @@ public class Docupload extends JPanel {
         // assemble page content
         pageContent.add(top, BorderLayout.NORTH);
 
-        listPanel.setOpaque(false);
-        listPanel.setLayout(new BoxLayout(listPanel, BoxLayout.Y_AXIS));
-        listPanel.setBorder(new EmptyBorder(10, 6, 10, 6));
-
-        JScrollPane scroll = new JScrollPane(listPanel);
-        scroll.setBorder(null);
-        scroll.getViewport().setBackground(bg);
-        scroll.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        fileList.setOpaque(false);
+        fileList.setCellRenderer(renderer);
+        fileList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        installListMouseHandling();
+        emptyLabel.setFont(new Font("Roboto", Font.PLAIN, 14));
+        emptyLabel.setForeground(new Color(100, 110, 120));
+        emptyLabel.setBorder(new EmptyBorder(12, 12, 12, 12));
+
+        listScroll.setBorder(null);
+        listScroll.getViewport().setBackground(bg);
+        listScroll.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        listScroll.getVerticalScrollBar().setUnitIncrement(24);
         // add(scroll, BorderLayout.CENTER);
-        pageContent.add(scroll, BorderLayout.CENTER);
+        pageContent.add(listScroll, BorderLayout.CENTER);
 
         JPanel bottom = new RoundedPanel(bg, 12);
         bottom.setLayout(new FlowLayout(FlowLayout.RIGHT, 10, 8));
@@ -123,14 +129,13 @@ public class Docupload extends JPanel {
     UITheme.stylePrimaryButton(finishBtn);
         // ensure all uploaded files are persisted and show summary
         finishBtn.addActionListener(a -> {
-            int synced = 0;
+            List<File> all;
             synchronized (uploadedFiles) {
-                for (File f : uploadedFiles) {
-                    try { FileDAO.insertOrUpdate(f, this.workflowId); synced++; } catch (Exception ignored) {}
-                }
+                all = new ArrayList<>(uploadedFiles);
             }
-            JOptionPane.showMessageDialog(SwingUtilities.getWindowAncestor(Docupload.this),
-                    "Synced " + synced + " uploaded files to database.", "Done", JOptionPane.INFORMATION_MESSAGE);
+            registerFiles(all, "Syncing uploaded files...", result ->
+                    JOptionPane.showMessageDialog(SwingUtilities.getWindowAncestor(Docupload.this),
+                            "Synced " + result.registered.size() + " uploaded files to database.", "Done", JOptionPane.INFORMATION_MESSAGE));
         });
         bottom.add(finishBtn);
         // add(bottom, BorderLayout.SOUTH);
@@ -151,163 +156,218 @@ public class Docupload extends JPanel {
         rebuildList();
     }
 
+    // Swaps the list contents in one model event; only the visible cards are ever painted.
     private void rebuildList() {
-        listPanel.removeAll();
-
         List<File> source;
         synchronized (uploadedFiles) {
             source = new ArrayList<>(uploadedFiles);
         }
-
-        if (source.isEmpty()) {
-            listPanel.setLayout(new BorderLayout());
-            listPanel.setBorder(new EmptyBorder(12, 12, 12, 12));
-            JLabel empty = new JLabel("No uploads", SwingConstants.CENTER);
-            empty.setFont(new Font("Roboto", Font.PLAIN, 14));
-            empty.setForeground(new Color(100, 110, 120));
-            listPanel.add(empty, BorderLayout.CENTER);
+        statCache.clear();
+        renderer.awaiting.clear();
+        fileModel.clear();
+        fileModel.addAll(source);
+
+        if (viewMode == ViewMode.MINIMAL) {
+            // fixed cell sizes keep JList from measuring every file
+            fileList.setLayoutOrientation(JList.HORIZONTAL_WRAP);
+            fileList.setVisibleRowCount(-1);
+            fileList.setFixedCellWidth(160 + 12);
+            fileList.setFixedCellHeight(120 + 12);
+            fileList.setBorder(new EmptyBorder(6, 6, 6, 6));
+            fileList.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
         } else {
-            if (viewMode == ViewMode.MINIMAL) {
-                listPanel.setLayout(new WrapLayout(FlowLayout.LEFT, 12, 12));
-                listPanel.setBorder(new EmptyBorder(12, 12, 12, 12));
-                for (File f : source) listPanel.add(createFileCardMinimal(f.getName(), extOf(f.getName()), f));
-            } else {
-                listPanel.setLayout(new BoxLayout(listPanel, BoxLayout.Y_AXIS));
-                listPanel.setBorder(new EmptyBorder(10, 6, 10, 6));
-                boolean first = true;
-                for (File f : source) {
-                    if (!first) listPanel.add(Box.createVerticalStrut(10));
-                    listPanel.add(createFileCardMedium(f.getName(), extOf(f.getName()), humanSize(f.length()), mDate(f.lastModified()), f));
-                    first = false;
-                }
-            }
+            fileList.setLayoutOrientation(JList.VERTICAL);
+            fileList.setVisibleRowCount(8);
+            fileList.setFixedCellWidth(320); // rows still stretch to the viewport
+            fileList.setFixedCellHeight(84 + 10);
+            fileList.setBorder(new EmptyBorder(10, 6, 0, 6));
+            fileList.setCursor(Cursor.getDefaultCursor());
         }
+        listScroll.setViewportView(source.isEmpty() ? emptyLabel : fileList);
+        listScroll.revalidate();
+        listScroll.repaint();
+    }
 
-        listPanel.revalidate();
-        listPanel.repaint();
+    // length and lastModified, statted once per file per rebuild; meta is filled in on first use
+    private static final class FileStat {
+        final long length, modified;
+        String meta;
+        FileStat(File f) { this.length = f.length(); this.modified = f.lastModified(); }
     }
 
-    private JComponent makeFileItem(String title, String type, String size, String date) {
-        if (viewMode == ViewMode.MINIMAL) return createFileCardMinimal(title, type, null);
-        return createFileCardMedium(title, type, size, date, null);
+    private FileStat statOf(File f) {
+        return statCache.computeIfAbsent(f, FileStat::new);
     }
 
-    private JPanel createFileCardMinimal(String title, String type, File file) {
-        RoundedPanel p = new RoundedPanel(Color.WHITE, 8);
-        p.setLayout(new BorderLayout());
-        p.setPreferredSize(new Dimension(160, 120));
-        p.setBorder(new EmptyBorder(10, 10, 10, 10));
-        p.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+    // "type · size · date" for the medium view
+    private String metaOf(File f) {
+        FileStat s = statOf(f);
+        if (s.meta == null) s.meta = extOf(f.getName()) + " · " + humanSize(s.length) + " · " + mDate(s.modified);
+        return s.meta;
+    }
 
-        Icon thumb = null;
-        if (file != null && file.exists()) {
-            thumb = thumbFromFile(file, 72, 72);
+    /**
+     * Paints one file card per list cell, with one reused component tree per view mode:
+     * the minimal tile (thumbnail over name) and the medium row (thumbnail, name, meta, Open, ⋯).
+     * Thumbnails come from ThumbnailService, keyed on the cached stat so painting never hits the
+     * disk; until one is ready the type icon or label stands in, and only that cell is repainted
+     * when it arrives (one callback per thumbnail, however often the cell is painted meanwhile).
+     */
+    private final class FileCardRenderer implements ListCellRenderer<File> {
+        private final JPanel minimalCell = new JPanel(new BorderLayout());
+        private final JLabel minimalThumb = new JLabel("", SwingConstants.CENTER);
+        private final JLabel minimalTitle = new JLabel("", SwingConstants.CENTER);
+
+        private final JPanel mediumCell = new JPanel(new BorderLayout());
+        private final JLabel mediumIcon = new JLabel("", SwingConstants.CENTER);
+        private final JLabel mediumTitle = new JLabel();
+        private final JLabel mediumMeta = new JLabel();
+        final JButton open = new JButton("Open");
+        final JButton more = new JButton("⋯");
+        final Set<String> awaiting = new HashSet<>(); // thumbnails with a repaint callback pending, EDT only
+
+        FileCardRenderer() {
+            minimalCell.setOpaque(false);
+            minimalCell.setBorder(new EmptyBorder(6, 6, 6, 6));
+            RoundedPanel p = new RoundedPanel(Color.WHITE, 8);
+            p.setLayout(new BorderLayout());
+            p.setBorder(new EmptyBorder(10, 10, 10, 10));
+            minimalThumb.setForeground(new Color(80, 80, 80));
+            minimalThumb.setFont(new Font("Roboto", Font.BOLD, 14));
+            minimalThumb.setBorder(new EmptyBorder(6, 6, 6, 6));
+            p.add(minimalThumb, BorderLayout.CENTER);
+            minimalTitle.setFont(new Font("Roboto", Font.PLAIN, 13));
+            minimalTitle.setForeground(new Color(20, 22, 24));
+            minimalTitle.setBorder(new EmptyBorder(6, 4, 2, 4));
+            p.add(minimalTitle, BorderLayout.SOUTH);
+            minimalCell.add(p, BorderLayout.CENTER);
+
+            mediumCell.setOpaque(false);
+            mediumCell.setBorder(new EmptyBorder(0, 0, 10, 0));
+            RoundedPanel m = new RoundedPanel(Color.WHITE, 10);
+            m.setLayout(new BorderLayout(8, 8));
+            m.setBorder(new EmptyBorder(10, 12, 10, 12));
+            JPanel left = new JPanel(new BorderLayout());
+            left.setOpaque(false);
+            mediumIcon.setFont(new Font("Roboto", Font.BOLD, 14));
+            mediumIcon.setPreferredSize(new Dimension(56, 56));
+            mediumIcon.setOpaque(true);
+            mediumIcon.setBackground(new Color(244, 246, 248));
+            mediumIcon.setBorder(new RoundedBorder(8, new Color(0,0,0,10)));
+            left.add(mediumIcon, BorderLayout.CENTER);
+            m.add(left, BorderLayout.WEST);
+
+            JPanel center = new JPanel(new BorderLayout(4, 4));
+            center.setOpaque(false);
+            mediumTitle.setFont(new Font("Roboto", Font.BOLD, 14));
+            mediumTitle.setForeground(new Color(20, 22, 24));
+            center.add(mediumTitle, BorderLayout.NORTH);
+            mediumMeta.setFont(new Font("Roboto", Font.PLAIN, 12));
+            mediumMeta.setForeground(new Color(100, 110, 120));
+            center.add(mediumMeta, BorderLayout.CENTER);
+            m.add(center, BorderLayout.CENTER);
+
+            JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 10));
+            right.setOpaque(false);
+            open.setFont(new Font("Roboto", Font.PLAIN, 12));
+            open.setPreferredSize(new Dimension(72, 30));
+            open.setFocusPainted(false);
+            UITheme.stylePrimaryButton(open);
+            open.setBorder(new RoundedBorder(8, new Color(0,0,0,18)));
+            more.setPreferredSize(new Dimension(40, 30));
+            more.setFocusPainted(false);
+            more.setBorder(new RoundedBorder(8, new Color(0,0,0,14)));
+            right.add(open);
+            right.add(more);
+            m.add(right, BorderLayout.EAST);
+            mediumCell.add(m, BorderLayout.CENTER);
         }
-        if (thumb == null) {
-            if ("txt".equalsIgnoreCase(type) || "text".equalsIgnoreCase(type)) thumb = loadIcon("/assets/learn_1.png", 72, 72);
-            if ("xlsx".equalsIgnoreCase(type) || "xls".equalsIgnoreCase(type)) thumb = loadIcon("/assets/learn_2.png", 72, 72);
-            if ("csv".equalsIgnoreCase(type)) thumb = loadIcon("/assets/learn_3.png", 72, 72);
-            if (thumb == null) thumb = loadIcon("/assets/list.png", 72, 72);
+
+        @Override
+        public Component getListCellRendererComponent(JList<? extends File> list, File file, int index, boolean selected, boolean focused) {
+            String type = extOf(file.getName());
+            if (viewMode == ViewMode.MINIMAL) {
+                Icon thumb = thumbnail(list, file, index, 72);
+                if (thumb == null) thumb = typeIcon(type);
+                minimalThumb.setIcon(thumb);
+                minimalThumb.setText(thumb == null ? type : "");
+                minimalTitle.setText(file.getName());
+                return minimalCell;
+            }
+            mediumIcon.setText(type);
+            mediumIcon.setIcon(thumbnail(list, file, index, 40));
+            mediumTitle.setText(file.getName());
+            mediumMeta.setText(metaOf(file));
+            return mediumCell;
         }
 
-        JLabel thumbLabel = new JLabel();
-        if (thumb != null) {
-            thumbLabel.setIcon(thumb);
-            thumbLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        } else {
-            thumbLabel.setText(type);
-            thumbLabel.setHorizontalAlignment(SwingConstants.CENTER);
-            thumbLabel.setForeground(new Color(80, 80, 80));
-            thumbLabel.setFont(new Font("Roboto", Font.BOLD, 14));
+        private Icon thumbnail(JList<? extends File> list, File file, int index, int size) {
+            if (!ThumbnailService.isImage(file)) return null;
+            String key = file.getPath() + '@' + size;
+            Consumer<Icon> onLoaded = awaiting.add(key) ? ic -> {
+                awaiting.remove(key);
+                repaintCell(list, file, index);
+            } : null;
+            Icon icon = ThumbnailService.shared().request(file, statOf(file).modified, size, size, onLoaded);
+            if (icon != null) awaiting.remove(key);
+            return icon;
         }
-        thumbLabel.setBorder(new EmptyBorder(6, 6, 6, 6));
-        p.add(thumbLabel, BorderLayout.CENTER);
-
-        JLabel t = new JLabel(title, SwingConstants.CENTER);
-        t.setFont(new Font("Roboto", Font.PLAIN, 13));
-        t.setForeground(new Color(20, 22, 24));
-        t.setBorder(new EmptyBorder(6, 4, 2, 4));
-        p.add(t, BorderLayout.SOUTH);
-
-        // interactions: double-click open, right-click menu (remove)
-        if (file != null) {
-            p.addMouseListener(new MouseAdapter() {
-                @Override public void mouseClicked(MouseEvent e) {
-                    if (e.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(e)) {
-                        try { Desktop.getDesktop().open(file); } catch (Exception ex) { /* ignore */ }
-                    } else if (SwingUtilities.isRightMouseButton(e)) {
-                        showFilePopupMenu(p, file, e.getX(), e.getY());
-                    }
-                }
-            });
+
+        private void repaintCell(JList<? extends File> list, File file, int index) {
+            ListModel<? extends File> model = list.getModel();
+            if (index < model.getSize() && model.getElementAt(index) == file) {
+                Rectangle r = list.getCellBounds(index, index);
+                if (r != null) list.repaint(r);
+            } else {
+                list.repaint(); // the list changed meanwhile
+            }
         }
 
-        return p;
+        private Icon typeIcon(String type) {
+            if ("txt".equalsIgnoreCase(type) || "text".equalsIgnoreCase(type)) return IconCache.get("/assets/learn_1.png", 72, 72);
+            if ("xlsx".equalsIgnoreCase(type) || "xls".equalsIgnoreCase(type)) return IconCache.get("/assets/learn_2.png", 72, 72);
+            if ("csv".equalsIgnoreCase(type)) return IconCache.get("/assets/learn_3.png", 72, 72);
+            return IconCache.get("/assets/list.png", 72, 72);
+        }
     }
 
-    private JPanel createFileCardMedium(String title, String type, String size, String date, File file) {
-        RoundedPanel p = new RoundedPanel(Color.WHITE, 10);
-        p.setLayout(new BorderLayout(8, 8));
-        p.setMaximumSize(new Dimension(Integer.MAX_VALUE, 84));
-        p.setBorder(new EmptyBorder(10, 12, 10, 12));
-
-        JPanel left = new JPanel(new BorderLayout());
-        left.setOpaque(false);
-        JLabel icon = new JLabel(type, SwingConstants.CENTER);
-        icon.setFont(new Font("Roboto", Font.BOLD, 14));
-        icon.setPreferredSize(new Dimension(56, 56));
-        icon.setOpaque(true);
-        icon.setBackground(new Color(244, 246, 248));
-        icon.setBorder(new RoundedBorder(8, new Color(0,0,0,10)));
-        if (file != null && file.exists()) {
-            Icon thumb = thumbFromFile(file, 40, 40);
-            if (thumb != null) icon.setIcon(thumb);
-        }
-        left.add(icon, BorderLayout.CENTER);
-        p.add(left, BorderLayout.WEST);
-
-        JPanel center = new JPanel(new BorderLayout(4, 4));
-        center.setOpaque(false);
-        JLabel t = new JLabel(title);
-        t.setFont(new Font("Roboto", Font.BOLD, 14));
-        t.setForeground(new Color(20, 22, 24));
-        center.add(t, BorderLayout.NORTH);
-
-        JLabel meta = new JLabel(type + " · " + size + " · " + date);
-        meta.setFont(new Font("Roboto", Font.PLAIN, 12));
-        meta.setForeground(new Color(100, 110, 120));
-        center.add(meta, BorderLayout.CENTER);
-
-        p.add(center, BorderLayout.CENTER);
-
-        JPanel right = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 10));
-        right.setOpaque(false);
-        JButton open = new JButton("Open");
-        open.setFont(new Font("Roboto", Font.PLAIN, 12));
-        open.setPreferredSize(new Dimension(72, 30));
-        open.setFocusPainted(false);
-    UITheme.stylePrimaryButton(open);
-    open.setBorder(new RoundedBorder(8, new Color(0,0,0,18)));
-
-        JButton more = new JButton("⋯");
-        more.setPreferredSize(new Dimension(40, 30));
-        more.setFocusPainted(false);
-        more.setBorder(new RoundedBorder(8, new Color(0,0,0,14)));
-        right.add(open);
-        right.add(more);
-        p.add(right, BorderLayout.EAST);
-
-        if (file != null) {
-            open.addActionListener(a -> {
-                try { Desktop.getDesktop().open(file); } catch (Exception ex) { /* ignore */ }
-                try { FileDAO.insertOrUpdate(file, Docupload.this.workflowId); } catch (Exception ignored) {}
-            });
-            more.addActionListener(a -> {
-                showFilePopupMenu(more, file, 0, more.getHeight());
-            });
-        }
+    // Cards are only painted, so clicks are routed by hit-testing the laid-out renderer.
+    private void installListMouseHandling() {
+        fileList.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                int index = fileList.locationToIndex(e.getPoint());
+                if (index < 0) return;
+                Rectangle cell = fileList.getCellBounds(index, index);
+                if (cell == null || !cell.contains(e.getPoint())) return;
+                File file = fileModel.get(index);
+                Component hit = rendererChildAt(file, index, cell, e.getX() - cell.x, e.getY() - cell.y);
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    showFilePopupMenu(fileList, file, e.getX(), e.getY());
+                } else if (hit == renderer.open) {
+                    try { Desktop.getDesktop().open(file); } catch (Exception ex) { /* ignore */ }
+                    try { FileDAO.insertOrUpdate(file, Docupload.this.workflowId); } catch (Exception ignored) {}
+                } else if (hit == renderer.more) {
+                    Rectangle b = SwingUtilities.convertRectangle(renderer.more.getParent(), renderer.more.getBounds(), renderer.mediumCell);
+                    showFilePopupMenu(fileList, file, cell.x + b.x, cell.y + b.y + b.height);
+                } else if (e.getClickCount() == 2 && SwingUtilities.isLeftMouseButton(e)) {
+                    try { Desktop.getDesktop().open(file); } catch (Exception ex) { /* ignore */ }
+                }
+            }
+        });
+    }
+
+    private Component rendererChildAt(File file, int index, Rectangle cell, int x, int y) {
+        Component c = renderer.getListCellRendererComponent(fileList, file, index, false, false);
+        c.setBounds(0, 0, cell.width, cell.height);
+        layoutTree(c);
+        return SwingUtilities.getDeepestComponentAt(c, x, y);
+    }
 
-        return p;
+    private static void layoutTree(Component c) {
+        if (!(c instanceof Container)) return;
+        Container ct = (Container) c;
+        ct.doLayout();
+        for (Component child : ct.getComponents()) layoutTree(child);
     }
 
     private JButton createUploadButton(String text, Color accent, Color surface) {
@@ -320,7 +380,7 @@ public class Docupload extends JPanel {
         btn.setBorder(BorderFactory.createEmptyBorder(8, 12, 8, 12));
         btn.setOpaque(true);
 
-        Icon icon = loadIcon("/assets/upload.png", 18, 18);
+        Icon icon = IconCache.get("/assets/upload.png", 18, 18);
         if (icon != null) btn.setIcon(icon);
         btn.setIconTextGap(10);
         btn.setPreferredSize(new Dimension(120, 40));
@@ -333,29 +393,82 @@ public class Docupload extends JPanel {
             fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
             int res = fc.showOpenDialog(SwingUtilities.getWindowAncestor(this));
             if (res == JFileChooser.APPROVE_OPTION) {
-                File[] files = fc.getSelectedFiles();
-                int added = 0;
+                List<File> fresh = new ArrayList<>();
                 synchronized (uploadedFiles) {
-                    for (File f : files) {
-                        if (f != null && f.exists() && !containsFile(uploadedFiles, f)) {
-                            // persist metadata immediately scoped to workflow
-                            try { FileDAO.insertOrUpdate(f, Docupload.this.workflowId); } catch (Exception ignored) {}
-                            uploadedFiles.add(f);
-                            added++;
-                        }
+                    Set<String> known = new HashSet<>();
+                    for (File f : uploadedFiles) known.add(f.getAbsolutePath());
+                    for (File f : fc.getSelectedFiles()) {
+                        if (f != null && known.add(f.getAbsolutePath())) fresh.add(f);
                     }
                 }
-                if (added > 0) rebuildList();
-                else JOptionPane.showMessageDialog(SwingUtilities.getWindowAncestor(this), "No new files selected.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                if (fresh.isEmpty()) {
+                    JOptionPane.showMessageDialog(SwingUtilities.getWindowAncestor(this), "No new files selected.", "Info", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                // persist metadata immediately scoped to workflow; only files that made it are listed
+                registerFiles(fresh, "Uploading " + fresh.size() + " files...", result -> {
+                    if (result.registered.isEmpty()) return;
+                    synchronized (uploadedFiles) {
+                        uploadedFiles.addAll(result.registered);
+                    }
+                    rebuildList();
+                });
             }
         });
 
         return btn;
     }
 
-    private boolean containsFile(List<File> list, File f) {
-        for (File e : list) if (e.getAbsolutePath().equals(f.getAbsolutePath())) return true;
-        return false;
+    /**
+     * Runs FileDAO.insertOrUpdateAll in the background behind a progress monitor (shown only if
+     * it takes a while), then calls onDone on the EDT; files that could not be registered are
+     * listed in a warning first. Cancelling the monitor before the write starts registers nothing.
+     */
+    private void registerFiles(List<File> files, String note, Consumer<FileDAO.BatchResult> onDone) {
+        Component owner = SwingUtilities.getWindowAncestor(this);
+        ProgressMonitor monitor = new ProgressMonitor(owner, note, null, 0, 100);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        // ProgressMonitor has no cancel event; poll it while the worker runs
+        javax.swing.Timer cancelPoll = new javax.swing.Timer(200, ev -> { if (monitor.isCanceled()) cancelled.set(true); });
+        SwingWorker<FileDAO.BatchResult, Void> worker = new SwingWorker<FileDAO.BatchResult, Void>() {
+            @Override protected FileDAO.BatchResult doInBackground() {
+                return FileDAO.insertOrUpdateAll(files, workflowId, new FileDAO.Progress() {
+                    @Override public void update(int done, int total) { setProgress(done * 100 / total); }
+                    @Override public boolean isCancelled() { return cancelled.get(); }
+                });
+            }
+
+            @Override protected void done() {
+                cancelPoll.stop();
+                monitor.close();
+                FileDAO.BatchResult result;
+                try {
+                    result = get();
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(owner, "Failed to register files: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                if (result.cancelled) return;
+                if (!result.failures.isEmpty()) {
+                    StringBuilder sb = new StringBuilder(result.failures.size() + " file(s) could not be added:\n");
+                    int shown = 0;
+                    for (Map.Entry<File, String> f : result.failures.entrySet()) {
+                        if (shown++ == 10) {
+                            sb.append("... and ").append(result.failures.size() - 10).append(" more");
+                            break;
+                        }
+                        sb.append(f.getKey().getName()).append(": ").append(f.getValue()).append('\n');
+                    }
+                    JOptionPane.showMessageDialog(owner, sb.toString(), "Some files skipped", JOptionPane.WARNING_MESSAGE);
+                }
+                onDone.accept(result);
+            }
+        };
+        worker.addPropertyChangeListener(ev -> {
+            if ("progress".equals(ev.getPropertyName())) monitor.setProgress((Integer) ev.getNewValue());
+        });
+        cancelPoll.start();
+        worker.execute();
     }
 
     private JButton createFlatButton(String text, Color bg) {
@@ -369,58 +482,6 @@ public class Docupload extends JPanel {
         return b;
     }
 
-    private Icon loadIcon(String resourcePath, int w, int h) {
-        try {
-            URL url = MailOrganize.class.getResource(resourcePath);
-
-            // try classpath
-            if (url != null) {
-                try (InputStream is = url.openStream()) {
-                    BufferedImage img = ImageIO.read(is);
-                    if (img != null) {
-                        Image scaled = img.getScaledInstance(w, h, Image.SCALE_SMOOTH);
-                        return new ImageIcon(scaled);
-                    }
-                } catch (Exception ignored) {}
-
-                ImageIcon raw = new ImageIcon(url);
-                if (raw.getIconWidth() > 0) {
-                    Image scaled = raw.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH);
-                    return new ImageIcon(scaled);
-                }
-            }
-
-            // fallback to local src (IDE)
-            File f = new File(System.getProperty("user.dir") + "/src/main/resources" + resourcePath);
-            if (f.exists()) {
-                try {
-                    BufferedImage img = ImageIO.read(f);
-                    if (img != null) {
-                        Image scaled = img.getScaledInstance(w, h, Image.SCALE_SMOOTH);
-                        return new ImageIcon(scaled);
-                    }
-                } catch (Exception ignored) {}
-                ImageIcon rawFile = new ImageIcon(f.toURI().toURL());
-                if (rawFile.getIconWidth() > 0) return new ImageIcon(rawFile.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH));
-            }
-        } catch (Exception ignored) {}
-        return null;
-    }
-
-    private Icon thumbFromFile(File f, int w, int h) {
-        try {
-            String ext = extOf(f.getName()).toLowerCase();
-            if (ext.matches("png|jpg|jpeg|gif|bmp")) {
-                BufferedImage img = ImageIO.read(f);
-                if (img != null) {
-                    Image scaled = img.getScaledInstance(w, h, Image.SCALE_SMOOTH);
-                    return new ImageIcon(scaled);
-                }
-            }
-        } catch (IOException ignored) {}
-        return null;
-    }
-
     private static String extOf(String name) {
         int i = name.lastIndexOf('.');
         return (i > 0) ? name.substring(i+1) : "";
@@ -437,38 +498,6 @@ public class Docupload extends JPanel {
         return new SimpleDateFormat("yyyy-MM-dd").format(new Date(ms));
     }
 
-    // WrapLayout for horizontal wrapping
-    private static class WrapLayout extends FlowLayout {
-        public WrapLayout(int align, int hgap, int vgap) { super(align, hgap, vgap); }
-        @Override
-        public Dimension preferredLayoutSize(Container target) {
-            synchronized (target.getTreeLock()) {
-                int hgap = getHgap(), vgap = getVgap();
-                int width = target.getWidth();
-                if (width <= 0) width = Integer.MAX_VALUE / 2;
-                Insets insets = target.getInsets();
-                int maxwidth = width - (insets.left + insets.right + hgap*2);
-                int x = 0, y = insets.top + vgap;
-                int rowh = 0;
-                for (Component c : target.getComponents()) {
-                    if (!c.isVisible()) continue;
-                    Dimension d = c.getPreferredSize();
-                    if (x == 0 || x + d.width <= maxwidth) {
-                        if (x > 0) x += hgap;
-                        x += d.width;
-                        rowh = Math.max(rowh, d.height);
-                    } else {
-                        x = d.width;
-                        y += vgap + rowh;
-                        rowh = d.height;
-                    }
-                }
-                y += rowh + insets.bottom;
-                return new Dimension(width, y);
-            }
-        }
-    }
-
     private static class RoundedPanel extends JPanel {
         private final Color bg;
         private final int radius;
@@ -0,0 +1,116 @@
+package main.ui;
+
+import javax.imageio.ImageIO;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import java.awt.GraphicsEnvironment;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BaseMultiResolutionImage;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared cache for the icons in /assets.
+ * - Each resource is decoded once (classpath first, then src/main/resources under the working
+ *   directory for IDE runs); a missing one is remembered as missing.
+ * - Each (resource, width, height, screen scale) is scaled once with Graphics2D - bilinear,
+ *   halving first for big reductions - instead of getScaledInstance on every call.
+ * - On a HiDPI screen the icon carries a second variant rendered at the device scale, so it
+ *   stays sharp while keeping its logical size.
+ * Thread-safe; warmUp() preloads the shared assets on a background thread at startup.
+ */
+public final class IconCache {
+    private IconCache() {}
+
+    // assets and sizes the pages ask for when they are first built
+    private static final Object[][] COMMON = {
+            {"/assets/back.png", 16}, {"/assets/forward.png", 16},
+            {"/assets/grid.png", 20}, {"/assets/list1.png", 20}, {"/assets/upload.png", 18},
+            {"/assets/learn_1.png", 72}, {"/assets/learn_2.png", 72}, {"/assets/learn_3.png", 72}, {"/assets/list.png", 72},
+            {"/assets/google.png", 18}, {"/assets/google.png", 50},
+            {"/assets/row.png", 16}, {"/assets/columns.png", 16}, {"/assets/delete-row.png", 16}, {"/assets/delete-col.png", 16},
+            {"/assets/csv-file-format-extension.png", 16}, {"/assets/excel.png", 16},
+            {"/assets/csv-file-format-extension.png", 18}, {"/assets/excel.png", 18},
+    };
+
+    private static final Map<String, Optional<BufferedImage>> sources = new ConcurrentHashMap<>();
+    private static final Map<String, Icon> icons = new ConcurrentHashMap<>();
+
+    /** The resource scaled to w x h logical pixels, or null if it can't be found or decoded. */
+    public static Icon get(String resource, int w, int h) {
+        double scale = screenScale();
+        String key = resource + '@' + w + 'x' + h + '@' + scale;
+        Icon icon = icons.get(key);
+        if (icon != null) return icon;
+        BufferedImage src = source(resource);
+        if (src == null) return null;
+        return icons.computeIfAbsent(key, k -> build(src, w, h, scale));
+    }
+
+    /** Decodes and scales the shared assets on a daemon thread. */
+    public static void warmUp() {
+        Thread t = new Thread(() -> {
+            for (Object[] e : COMMON) get((String) e[0], (Integer) e[1], (Integer) e[1]);
+        }, "SolFlow-icon-warmup");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        t.start();
+    }
+
+    private static BufferedImage source(String resource) {
+        return sources.computeIfAbsent(resource, r -> Optional.ofNullable(decode(r))).orElse(null);
+    }
+
+    private static BufferedImage decode(String resource) {
+        try {
+            URL url = IconCache.class.getResource(resource);
+            if (url != null) return ImageIO.read(url);
+            File f = new File(System.getProperty("user.dir") + "/src/main/resources" + resource);
+            if (f.isFile()) return ImageIO.read(f);
+        } catch (Exception ignored) {}
+        return null;
+    }
+
+    private static Icon build(BufferedImage src, int w, int h, double scale) {
+        BufferedImage base = scale(src, w, h);
+        if (scale <= 1.0) return new ImageIcon(base);
+        BufferedImage hi = scale(src, (int) Math.round(w * scale), (int) Math.round(h * scale));
+        return new ImageIcon(new BaseMultiResolutionImage(base, hi));
+    }
+
+    // halves until within 2x of the target, then one bilinear step: close to SCALE_SMOOTH, far cheaper
+    static BufferedImage scale(BufferedImage src, int w, int h) {
+        BufferedImage cur = src;
+        int cw = src.getWidth(), ch = src.getHeight();
+        do {
+            cw = cw / 2 >= w ? cw / 2 : w;
+            ch = ch / 2 >= h ? ch / 2 : h;
+            BufferedImage next = new BufferedImage(cw, ch, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(cur, 0, 0, cw, ch, null);
+            } finally {
+                g.dispose();
+            }
+            cur = next;
+        } while (cw != w || ch != h);
+        return cur;
+    }
+
+    private static double screenScale() {
+        if (GraphicsEnvironment.isHeadless()) return 1.0;
+        try {
+            return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                    .getDefaultConfiguration().getDefaultTransform().getScaleX();
+        } catch (RuntimeException ex) {
+            return 1.0;
+        }
+    }
+}
@@ -1,9 +1,18 @@
 package main.ui;
 
+import main.csv.CsvReader;
+import main.csv.ParallelCsvReader;
 import main.db.FileDAO;
+import main.db.SettingsDAO;
 import main.db.SheetDAO;
+import main.xlsx.XlsxStreamReader;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.TableModelEvent;
@@ -17,10 +26,18 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.awt.image.BufferedImage;
-import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Modernized MailOrganize panel - refreshed toolbar, polished tree and table visuals.
@@ -28,10 +45,20 @@ import java.net.URL;
  */
 public class MailOrganize extends JPanel {
     private static final String ACTIVE_SHEET_NAME = "active_sheet";
+    // one thread, so saves of the active sheet reach the database in the order they were taken
+    private static final ExecutorService SAVE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SolFlow-sheet-save");
+        t.setDaemon(true);
+        return t;
+    });
     private final DynamicTableModel tableModel = new DynamicTableModel();
     private final JTable table = new JTable(tableModel);
 
     private Timer autosaveTimer;
+    private final JLabel status = new JLabel("Ready");
+    private final JProgressBar importProgress = new JProgressBar(0, 100);
+    private final JButton cancelImport = new JButton("Cancel");
+    private ImportWorker importWorker; // EDT only
     private final DefaultMutableTreeNode rootNode;
     private final JTree tree;
 
@@ -135,11 +162,20 @@ public MailOrganize() {
         tbPanel.add(loadExcel);
 
         tbPanel.add(Box.createHorizontalGlue());
-        JLabel status = new JLabel("Ready");
         status.setForeground(MUTED);
         status.setFont(BTN_FONT);
         tbPanel.add(status);
 
+        // import progress, only visible while a CSV import runs
+        importProgress.setPreferredSize(new Dimension(140, 14));
+        importProgress.setVisible(false);
+        cancelImport.setFont(BTN_FONT);
+        cancelImport.setFocusPainted(false);
+        cancelImport.setVisible(false);
+        cancelImport.addActionListener(e -> { if (importWorker != null) importWorker.cancel(false); });
+        tbPanel.add(importProgress);
+        tbPanel.add(cancelImport);
+
         card.add(tbPanel, BorderLayout.NORTH);
 
         // Table styling
@@ -173,31 +209,32 @@ public MailOrganize() {
         // wire buttons
         addRow.addActionListener(e -> { tableModel.addRow(); scrollToBottom(); });
         addCol.addActionListener(e -> { tableModel.addColumn("Col " + (tableModel.getColumnCount()+1)); });
+        // multi-selection deletes run as one batch: a single event however many go
         delRow.addActionListener(e -> {
-            int r = table.getSelectedRow();
-            if (r >= 0) tableModel.removeRow(r);
+            int[] sel = table.getSelectedRows();
+            tableModel.batch(() -> {
+                for (int i = sel.length - 1; i >= 0; i--) tableModel.removeRow(sel[i]);
+            });
         });
         delCol.addActionListener(e -> {
-            int c = table.getSelectedColumn();
-            if (c >= 0) tableModel.removeColumn(c);
+            int[] sel = table.getSelectedColumns();
+            for (int i = 0; i < sel.length; i++) sel[i] = table.convertColumnIndexToModel(sel[i]);
+            Arrays.sort(sel);
+            tableModel.batch(() -> {
+                for (int i = sel.length - 1; i >= 0; i--) tableModel.removeColumn(sel[i]);
+            });
         });
 
         loadCsv.addActionListener(e -> {
             JFileChooser fc = new JFileChooser();
             if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-                File sel = fc.getSelectedFile();
-                loadCsvFile(sel);
-                try { FileDAO.insertOrUpdate(sel); } catch (Exception ignored) {}
-                status.setText("Loaded: " + sel.getName());
+                loadCsvFile(fc.getSelectedFile()); // reports its own status when done
             }
         });
         loadExcel.addActionListener(e -> {
             JFileChooser fc = new JFileChooser();
             if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-                File sel = fc.getSelectedFile();
-                loadExcelFile(sel);
-                try { FileDAO.insertOrUpdate(sel); } catch (Exception ignored) {}
-                status.setText("Loaded: " + sel.getName());
+                loadExcelFile(fc.getSelectedFile()); // reports its own status when done
             }
         });
 
@@ -206,26 +243,23 @@ public MailOrganize() {
             JFileChooser fc = new JFileChooser();
             if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
                 loadCsvFile(fc.getSelectedFile());
-                status.setText("Imported CSV");
             }
         });
         importXls.addActionListener(e -> {
             JFileChooser fc = new JFileChooser();
             if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
                 loadExcelFile(fc.getSelectedFile());
-                status.setText("Imported Excel");
             }
         });
         saveBtn.addActionListener(e -> {
-            try {
-                String csv = tableModelToCsv(tableModel);
-                int id = SheetDAO.saveSheet(ACTIVE_SHEET_NAME, csv);
+            status.setText("Saving...");
+            saveActiveSheet(id -> {
                 JOptionPane.showMessageDialog(this, "Saved sheet (id=" + id + ")", "Saved", JOptionPane.INFORMATION_MESSAGE);
                 status.setText("Saved");
-            } catch (Exception ex) {
+            }, ex -> {
                 JOptionPane.showMessageDialog(this, "Failed saving sheet to DB: " + ex.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
                 status.setText("Save failed");
-            }
+            });
         });
 
         right.add(card, BorderLayout.CENTER);
@@ -239,39 +273,41 @@ public MailOrganize() {
         split.setDividerLocation(leftScroll.getPreferredSize().width);
         pageContent.add(split, BorderLayout.CENTER);
 
-        // load last saved sheet
+        // load last saved sheet; the first line is always the header written on save
         try {
             SheetDAO.SheetRecord last = SheetDAO.getLastSavedSheet();
             if (last != null && last.csv != null && !last.csv.isEmpty()) {
                 List<String[]> parsed = new ArrayList<>();
-                try (BufferedReader br = new BufferedReader(new java.io.StringReader(last.csv))) {
-                    String line;
-                    while ((line = br.readLine()) != null) parsed.add(parseCsvLine(line));
+                try (CsvReader csv = CsvReader.forString(last.csv)) {
+                    String[] rec;
+                    while ((rec = csv.next()) != null) parsed.add(rec);
                 }
-                int maxCols = 0;
+                String[] header = parsed.isEmpty() ? new String[0] : parsed.remove(0);
+                int maxCols = header.length;
                 for (String[] r : parsed) if (r.length > maxCols) maxCols = r.length;
                 if (maxCols == 0) maxCols = 1;
-                tableModel.clear();
-                for (int c = 0; c < maxCols; c++) tableModel.addColumn("C" + (c + 1));
-                for (String[] r : parsed) tableModel.addRow(r);
+                List<String> names = new ArrayList<>();
+                for (int c = 0; c < maxCols; c++) {
+                    String name = c < header.length ? header[c] : "";
+                    names.add(name.isEmpty() ? "C" + (c + 1) : name);
+                }
+                tableModel.batch(() -> {
+                    tableModel.reset(names);
+                    tableModel.appendRows(parsed);
+                });
+                // row-block sheets are already stored as loaded; csv sheets get converted by the first save
+                if (last.rowBlocks) tableModel.markClean();
             } else {
-                tableModel.addColumn("Col 1");
-                tableModel.addRow();
+                tableModel.batch(this::blankSheet);
             }
         } catch (Exception ex) {
-            tableModel.clear();
-            tableModel.addColumn("Col 1");
-            tableModel.addRow();
+            tableModel.batch(this::blankSheet);
         }
 
         // autosave debounce
         autosaveTimer = new Timer(1500, e -> {
             autosaveTimer.stop();
-            try {
-                String csv = tableModelToCsv(tableModel);
-                SheetDAO.saveSheet(ACTIVE_SHEET_NAME, csv);
-                status.setText("Autosaved");
-            } catch (Exception ignored) {}
+            saveActiveSheet(id -> status.setText("Autosaved"), ex -> {});
         });
         autosaveTimer.setRepeats(false);
 
@@ -305,7 +341,30 @@ public MailOrganize() {
         add(NavigationBar.wrap(pageContent), BorderLayout.CENTER);
      }
 
+    // Writes only the row blocks touched since the last save; after a failure the next save rewrites everything.
+    // The dirty blocks are snapshotted here on the EDT; compressing and writing them runs on SAVE_EXECUTOR,
+    // and onSaved (with the sheet id) or onFailed is then called back on the EDT.
+    private void saveActiveSheet(IntConsumer onSaved, Consumer<Exception> onFailed) {
+        SheetDAO.SheetDelta delta = tableModel.takeDelta();
+        SAVE_EXECUTOR.execute(() -> {
+            try {
+                int id = SheetDAO.saveSheetDelta(ACTIVE_SHEET_NAME, delta);
+                SwingUtilities.invokeLater(() -> onSaved.accept(id));
+            } catch (SQLException | RuntimeException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    tableModel.markAllDirty();
+                    onFailed.accept(ex);
+                });
+            }
+        });
+    }
+
     // scroll to bottom after adding row
+    private void blankSheet() {
+        tableModel.reset(Collections.singletonList("Col 1"));
+        tableModel.addRow();
+    }
+
     private void scrollToBottom() {
         SwingUtilities.invokeLater(() -> {
             int r = tableModel.getRowCount() - 1;
@@ -315,46 +374,230 @@ public MailOrganize() {
 
     private void loadCsvFile(File f) {
         if (f == null || !f.exists()) return;
-        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(f), StandardCharsets.UTF_8))) {
-            String line;
-            List<String[]> rows = new ArrayList<>();
-            while ((line = br.readLine()) != null) rows.add(parseCsvLine(line));
-            if (rows.isEmpty()) return;
-            int maxCols = 0;
-            for (String[] r : rows) if (r.length > maxCols) maxCols = r.length;
-
-            tableModel.clear();
-            for (int c = 0; c < maxCols; c++) tableModel.addColumn("C" + (c+1));
-            for (String[] r : rows) {
-                String[] row = new String[maxCols];
-                for (int i = 0; i < maxCols; i++) row[i] = (i < r.length) ? r[i] : "";
-                tableModel.addRow(row);
+        startImport(new CsvImportWorker(f));
+    }
+
+    // Runs an import in the background; any import still running is cancelled first.
+    private void startImport(ImportWorker w) {
+        if (importWorker != null) importWorker.cancel(false);
+        importWorker = w;
+        importProgress.setValue(0);
+        importProgress.setIndeterminate(!w.reportsProgress());
+        importProgress.setVisible(true);
+        cancelImport.setVisible(true);
+        status.setText("Importing " + w.file.getName() + "...");
+        w.addPropertyChangeListener(ev -> {
+            if ("progress".equals(ev.getPropertyName()) && importWorker == w) importProgress.setValue((Integer) ev.getNewValue());
+        });
+        w.execute();
+    }
+
+    /**
+     * Background import into the sheet. Subclasses produce rows off the EDT and publish them in
+     * chunks of CHUNK_ROWS; each chunk arrives on the EDT already in the model's row format and
+     * is appended with a single insert event. The sheet is only replaced once the first chunk is
+     * ready, and the whole file is never held in memory. Cancelling keeps the rows imported so far.
+     */
+    private abstract class ImportWorker extends SwingWorker<Integer, List<String[]>> {
+        static final int CHUNK_ROWS = 5000;
+        final File file;
+        private final String kind;
+        private boolean started; // EDT only
+        private int shown;       // rows appended so far, EDT only
+
+        ImportWorker(File file, String kind) { this.file = file; this.kind = kind; }
+
+        // false shows an indeterminate progress bar
+        boolean reportsProgress() { return true; }
+
+        @Override protected void process(List<List<String[]>> chunks) {
+            if (importWorker != this) return; // superseded by a newer import
+            tableModel.beginUpdate();
+            try {
+                for (List<String[]> chunk : chunks) {
+                    if (!started) {
+                        int width = 0;
+                        for (String[] r : chunk) width = Math.max(width, r.length);
+                        List<String> names = new ArrayList<>();
+                        for (int c = 0; c < Math.max(1, width); c++) names.add("C" + (c + 1));
+                        tableModel.reset(names);
+                        started = true;
+                    }
+                    tableModel.appendRows(chunk);
+                    shown += chunk.size();
+                }
+            } finally {
+                tableModel.endUpdate();
+            }
+            status.setText("Importing " + file.getName() + "... " + shown + " rows");
+        }
+
+        @Override protected void done() {
+            if (importWorker != this) return;
+            importWorker = null;
+            importProgress.setVisible(false);
+            cancelImport.setVisible(false);
+            if (isCancelled()) {
+                status.setText("Import cancelled (" + shown + " rows)");
+                return;
+            }
+            try {
+                get();
+                status.setText("Loaded: " + file.getName() + " (" + shown + " rows)");
+                try { FileDAO.insertOrUpdate(file); } catch (Exception ignored) {}
+            } catch (Exception ex) {
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                status.setText("Import failed");
+                JOptionPane.showMessageDialog(MailOrganize.this, "Failed to load " + kind + ": " + cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
+        }
+    }
+
+    /**
+     * CSV import via CsvReader. Files of at least csv_parallel_threshold_mb megabytes
+     * (setting, default 64, 0 = never) are parsed by ParallelCsvReader instead, still in file order.
+     */
+    private final class CsvImportWorker extends ImportWorker {
+        CsvImportWorker(File file) { super(file, "CSV"); }
+
+        @Override protected Integer doInBackground() throws IOException {
+            long total = Math.max(1L, file.length());
+            long thresholdMb = SettingsDAO.getInt("csv_parallel_threshold_mb", 64);
+            if (thresholdMb > 0 && file.length() >= thresholdMb << 20) return importParallel(total);
+            int count = 0;
+            CountingInputStream in = new CountingInputStream(new FileInputStream(file));
+            try (CsvReader csv = CsvReader.open(in)) {
+                List<String[]> chunk = new ArrayList<>(CHUNK_ROWS);
+                String[] rec;
+                while ((rec = csv.next()) != null) {
+                    if (isCancelled()) return count;
+                    chunk.add(rec);
+                    count++;
+                    if (chunk.size() == CHUNK_ROWS) {
+                        publish(chunk);
+                        chunk = new ArrayList<>(CHUNK_ROWS);
+                        setProgress((int) Math.min(99, in.count * 100 / total));
+                    }
+                }
+                if (!chunk.isEmpty()) publish(chunk);
+            }
+            return count;
+        }
+
+        private int importParallel(long total) throws IOException {
+            int[] count = {0};
+            new ParallelCsvReader().read(file, (rows, bytesDone) -> {
+                if (isCancelled()) return false;
+                for (int from = 0; from < rows.size(); from += CHUNK_ROWS) {
+                    int to = Math.min(rows.size(), from + CHUNK_ROWS);
+                    publish(new ArrayList<>(rows.subList(from, to)));
+                }
+                count[0] += rows.size();
+                setProgress((int) Math.min(99, bytesDone * 100 / total));
+                return true;
+            });
+            return count[0];
+        }
+    }
+
+    // Streams one sheet of an .xlsx through XlsxStreamReader; the row count is unknown up front.
+    private final class XlsxImportWorker extends ImportWorker {
+        private final int sheetIndex, rowLimit;
+        private List<String[]> pending = new ArrayList<>(CHUNK_ROWS); // worker thread only
+
+        XlsxImportWorker(File file, int sheetIndex, int rowLimit) {
+            super(file, "Excel");
+            this.sheetIndex = sheetIndex;
+            this.rowLimit = rowLimit;
+        }
 
-            try { FileDAO.insertOrUpdate(f); } catch (Exception ignored) {}
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Failed to load CSV: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        @Override boolean reportsProgress() { return false; }
+
+        @Override protected Integer doInBackground() throws IOException {
+            int count = XlsxStreamReader.read(file, sheetIndex, rowLimit, (rowIndex, cells) -> {
+                if (isCancelled()) return false;
+                pending.add(cells);
+                if (pending.size() == CHUNK_ROWS) {
+                    publish(pending);
+                    pending = new ArrayList<>(CHUNK_ROWS);
+                }
+                return true;
+            });
+            if (!pending.isEmpty() && !isCancelled()) publish(pending);
+            return count;
+        }
+    }
+
+    /**
+     * Legacy .xls import. HSSF has no streaming reader, so the workbook is still parsed whole, but
+     * on the worker thread; the sheet is picked on the EDT, then rows go out in chunks like the others.
+     */
+    private final class XlsImportWorker extends ImportWorker {
+        private final int rowLimit;
+
+        XlsImportWorker(File file, int rowLimit) {
+            super(file, "Excel");
+            this.rowLimit = rowLimit;
+        }
+
+        @Override protected Integer doInBackground() throws Exception {
+            try (Workbook wb = WorkbookFactory.create(file, null, true)) {
+                List<String> names = new ArrayList<>();
+                for (int i = 0; i < wb.getNumberOfSheets(); i++) names.add(wb.getSheetName(i));
+                int[] sheet = {-1};
+                SwingUtilities.invokeAndWait(() -> sheet[0] = chooseSheet(names));
+                if (sheet[0] < 0) {
+                    cancel(false); // no sheet picked: the current sheet stays as it is
+                    return 0;
+                }
+                Sheet s = wb.getSheetAt(sheet[0]);
+                int last = Math.max(1, s.getLastRowNum() + 1);
+                DataFormatter df = new DataFormatter();
+                List<String[]> chunk = new ArrayList<>(CHUNK_ROWS);
+                int count = 0;
+                for (Row row : s) {
+                    if (isCancelled()) return count;
+                    if (rowLimit > 0 && count >= rowLimit) break;
+                    List<String> cells = new ArrayList<>();
+                    // place cells by column index so a blank cell doesn't shift the rest left
+                    for (Cell cell : row) {
+                        int c = cell.getColumnIndex();
+                        while (cells.size() <= c) cells.add("");
+                        cells.set(c, df.formatCellValue(cell));
+                    }
+                    chunk.add(cells.toArray(new String[0]));
+                    count++;
+                    if (chunk.size() == CHUNK_ROWS) {
+                        publish(chunk);
+                        chunk = new ArrayList<>(CHUNK_ROWS);
+                        setProgress(Math.min(99, (int) ((long) row.getRowNum() * 100 / last)));
+                    }
+                }
+                if (!chunk.isEmpty()) publish(chunk);
+                return count;
+            }
         }
     }
 
-    // simple CSV parser (handles quoted commas)
-    private String[] parseCsvLine(String line) {
-        List<String> cells = new ArrayList<>();
-        StringBuilder cur = new StringBuilder();
-        boolean inQuote = false;
-        for (int i=0;i<line.length();i++) {
-            char ch = line.charAt(i);
-            if (ch == '"') {
-                if (inQuote && i+1 < line.length() && line.charAt(i+1) == '"') {
-                    cur.append('"'); i++;
-                } else inQuote = !inQuote;
-            } else if (ch == ',' && !inQuote) {
-                cells.add(cur.toString());
-                cur.setLength(0);
-            } else cur.append(ch);
-        }
-        cells.add(cur.toString());
-        return cells.toArray(new String[0]);
+    // byte position for import progress; only read by the worker thread that owns it
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+        CountingInputStream(InputStream in) { super(in); }
+        @Override public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count++;
+            return b;
+        }
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+        @Override public long skip(long n) throws IOException {
+            long s = super.skip(n);
+            count += s;
+            return s;
+        }
     }
 
     private void populateChildren(DefaultMutableTreeNode node) {
@@ -460,66 +703,211 @@ public MailOrganize() {
         @Override public String toString() { return file.getName().isEmpty() ? file.getAbsolutePath() : file.getName(); }
     }
 
-    // DynamicTableModel unchanged (keeps existing behavior)
+    /**
+     * Editable sheet model, stored by column (see SheetColumn) so adding or removing a column is
+     * independent of the row count; cells always read back as the String that was written. It
+     * remembers which SheetDAO row blocks changed since the last save for takeDelta().
+     */
     private static class DynamicTableModel extends AbstractTableModel {
-        private final List<String> cols = new ArrayList<>();
-        private final List<List<String>> rows = new ArrayList<>();
+        private final List<SheetColumn> cols = new ArrayList<>();
+        private int rowCount;
+        private final BitSet dirtyBlocks = new BitSet();
+        private boolean allDirty = true; // nothing stored in row-block form yet
+        private int updateDepth;
+        private TableModelEvent pending; // merged event of the open batch, null if nothing changed
+
+        /**
+         * Opens a batch: until the matching endUpdate() the model's events are merged instead of
+         * fired. Batches nest; the outermost endUpdate() fires at most one event - a structure
+         * change if any mutation changed the columns, else one insert, delete or update over the
+         * combined rows, or a plain data change when the row edits don't form a single range.
+         */
+        void beginUpdate() { updateDepth++; }
+
+        void endUpdate() {
+            if (updateDepth == 0 || --updateDepth > 0) return;
+            TableModelEvent e = pending;
+            pending = null;
+            if (e != null) super.fireTableChanged(e);
+        }
+
+        void batch(Runnable mutations) {
+            beginUpdate();
+            try {
+                mutations.run();
+            } finally {
+                endUpdate();
+            }
+        }
+
+        @Override public void fireTableChanged(TableModelEvent e) {
+            if (updateDepth == 0) super.fireTableChanged(e);
+            else pending = pending == null ? e : merge(pending, e);
+        }
+
+        private TableModelEvent merge(TableModelEvent a, TableModelEvent b) {
+            int HEADER = TableModelEvent.HEADER_ROW;
+            if (a.getFirstRow() == HEADER) return a;
+            if (b.getFirstRow() == HEADER) return b;
+            if (a.getLastRow() == Integer.MAX_VALUE) return a; // already "everything changed"
+            if (b.getLastRow() == Integer.MAX_VALUE) return b;
+            int ta = a.getType(), tb = b.getType();
+            int af = a.getFirstRow(), al = a.getLastRow(), bf = b.getFirstRow(), bl = b.getLastRow();
+            if (ta == TableModelEvent.UPDATE && tb == TableModelEvent.UPDATE) {
+                int col = a.getColumn() == b.getColumn() ? a.getColumn() : TableModelEvent.ALL_COLUMNS;
+                return new TableModelEvent(this, Math.min(af, bf), Math.max(al, bl), col);
+            }
+            if (ta == TableModelEvent.INSERT && tb == TableModelEvent.INSERT && bf == al + 1)
+                return new TableModelEvent(this, af, bl, TableModelEvent.ALL_COLUMNS, TableModelEvent.INSERT);
+            if (ta == TableModelEvent.INSERT && tb == TableModelEvent.UPDATE && bf >= af && bl <= al)
+                return a; // edits to rows inserted in the same batch
+            if (ta == TableModelEvent.DELETE && tb == TableModelEvent.DELETE) {
+                if (bf == af) // deleting at the same index again (top-down)
+                    return new TableModelEvent(this, af, al + bl - bf + 1, TableModelEvent.ALL_COLUMNS, TableModelEvent.DELETE);
+                if (bl + 1 == af) // deleting the rows just above (bottom-up)
+                    return new TableModelEvent(this, bf, al, TableModelEvent.ALL_COLUMNS, TableModelEvent.DELETE);
+            }
+            return new TableModelEvent(this); // rows changed in no single range
+        }
+
+        private void markRowDirty(int row) { dirtyBlocks.set(row / SheetDAO.ROW_BLOCK_SIZE); }
+
+        // rows shift up after a delete, so every block from the deleted row on changes
+        private void markRowsDirtyFrom(int row) {
+            dirtyBlocks.set(row / SheetDAO.ROW_BLOCK_SIZE, rowCount / SheetDAO.ROW_BLOCK_SIZE + 1);
+        }
+
+        void markAllDirty() { allDirty = true; }
+
+        void markClean() {
+            allDirty = false;
+            dirtyBlocks.clear();
+        }
+
+        // Snapshot of the header and every dirty block; the model counts as saved afterwards.
+        SheetDAO.SheetDelta takeDelta() {
+            StringBuilder header = new StringBuilder();
+            for (int c = 0; c < cols.size(); c++) {
+                if (c > 0) header.append(',');
+                header.append(escapeCsv(cols.get(c).name));
+            }
+            int blockCount = (rowCount + SheetDAO.ROW_BLOCK_SIZE - 1) / SheetDAO.ROW_BLOCK_SIZE;
+            Map<Integer, String> blocks = new LinkedHashMap<>();
+            for (int b = allDirty ? 0 : dirtyBlocks.nextSetBit(0); b >= 0 && b < blockCount;
+                 b = allDirty ? b + 1 : dirtyBlocks.nextSetBit(b + 1)) {
+                StringBuilder sb = new StringBuilder();
+                int end = Math.min(rowCount, (b + 1) * SheetDAO.ROW_BLOCK_SIZE);
+                for (int r = b * SheetDAO.ROW_BLOCK_SIZE; r < end; r++) {
+                    for (int c = 0; c < cols.size(); c++) {
+                        if (c > 0) sb.append(',');
+                        sb.append(escapeCsv(cols.get(c).get(r)));
+                    }
+                    sb.append('\n');
+                }
+                blocks.put(b, sb.toString());
+            }
+            SheetDAO.SheetDelta d = new SheetDAO.SheetDelta(header.toString(), rowCount, cols.size(), blocks, allDirty);
+            markClean();
+            return d;
+        }
 
-        @Override public int getRowCount() { return rows.size(); }
+        @Override public int getRowCount() { return rowCount; }
         @Override public int getColumnCount() { return cols.size(); }
-        @Override public String getColumnName(int column) { return cols.get(column); }
+        @Override public String getColumnName(int column) { return cols.get(column).name; }
         @Override public Object getValueAt(int rowIndex, int columnIndex) {
-            List<String> r = rows.get(rowIndex);
-            if (columnIndex < r.size()) return r.get(columnIndex);
-            return "";
+            return cols.get(columnIndex).get(rowIndex);
         }
         @Override public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-            List<String> r = rows.get(rowIndex);
-            while (columnIndex >= r.size()) r.add("");
-            r.set(columnIndex, aValue == null ? "" : aValue.toString());
+            cols.get(columnIndex).set(rowIndex, aValue == null ? "" : aValue.toString());
+            markRowDirty(rowIndex);
             fireTableCellUpdated(rowIndex, columnIndex);
         }
         @Override public boolean isCellEditable(int rowIndex, int columnIndex) { return true; }
 
         void setColumnName(int idx, String name) {
             if (idx < 0 || idx >= cols.size()) return;
-            cols.set(idx, name);
+            cols.get(idx).name = name;
             fireTableStructureChanged();
         }
 
         void addColumn(String name) {
-            cols.add(name);
-            for (List<String> r : rows) r.add("");
+            cols.add(new SheetColumn(name));
+            allDirty = true;
             fireTableStructureChanged();
         }
 
         void removeColumn(int idx) {
             if (idx < 0 || idx >= cols.size()) return;
             cols.remove(idx);
-            for (List<String> r : rows) if (idx < r.size()) r.remove(idx);
+            allDirty = true;
             fireTableStructureChanged();
         }
 
-        void addRow() { addRow(new String[cols.size()]); }
+        void addRow() { addRow(new String[0]); }
 
         void addRow(String[] values) {
-            List<String> r = new ArrayList<>();
-            for (int i = 0; i < cols.size(); i++) r.add(i < values.length ? values[i] : "");
-            rows.add(r);
-            fireTableRowsInserted(rows.size()-1, rows.size()-1);
+            int r = rowCount++;
+            for (int c = 0; c < cols.size() && c < values.length; c++) cols.get(c).set(r, values[c]);
+            markRowDirty(r);
+            fireTableRowsInserted(r, r);
         }
 
         void removeRow(int idx) {
-            if (idx < 0 || idx >= rows.size()) return;
-            rows.remove(idx);
+            if (idx < 0 || idx >= rowCount) return;
+            for (SheetColumn c : cols) c.removeRow(idx);
+            rowCount--;
+            markRowsDirtyFrom(idx);
             fireTableRowsDeleted(idx, idx);
         }
 
         void clear() {
             cols.clear();
-            rows.clear();
+            rowCount = 0;
+            allDirty = true;
             fireTableStructureChanged();
         }
+
+        // Replaces the sheet with empty columns of the given names: one structure event.
+        void reset(List<String> names) {
+            cols.clear();
+            for (String n : names) cols.add(new SheetColumn(n));
+            rowCount = 0;
+            allDirty = true;
+            fireTableStructureChanged();
+        }
+
+        // Appends rows with a single insert event, or a single structure event when a row wider
+        // than the sheet adds the missing columns. Filled column by column.
+        void appendRows(List<String[]> batch) {
+            if (batch.isEmpty()) return;
+            beginUpdate();
+            try {
+                appendColumns(batch);
+            } finally {
+                endUpdate();
+            }
+        }
+
+        private void appendColumns(List<String[]> batch) {
+            int width = cols.size();
+            for (String[] r : batch) width = Math.max(width, r.length);
+            if (width > cols.size()) {
+                while (cols.size() < width) cols.add(new SheetColumn("C" + (cols.size() + 1)));
+                allDirty = true;
+                fireTableStructureChanged();
+            }
+            int first = rowCount;
+            for (int c = 0; c < width; c++) {
+                SheetColumn col = cols.get(c);
+                for (int i = 0; i < batch.size(); i++) {
+                    String[] r = batch.get(i);
+                    if (c < r.length && r[c] != null && !r[c].isEmpty()) col.set(first + i, r[c]);
+                }
+            }
+            rowCount += batch.size();
+            markRowsDirtyFrom(first);
+            fireTableRowsInserted(first, rowCount - 1);
+        }
     }
 
     // Save table to CSV
@@ -542,35 +930,16 @@ public MailOrganize() {
         }
     }
 
-    private String escapeCsv(String v) {
-        if (v.contains(",") || v.contains("\"") || v.contains("\n")) {
+    private static String escapeCsv(String v) {
+        if (v.contains(",") || v.contains("\"") || v.contains("\n") || v.contains("\r")) {
             return "\"" + v.replace("\"", "\"\"") + "\"";
         }
         return v;
     }
 
-    private String tableModelToCsv(AbstractTableModel m) {
-        StringBuilder sb = new StringBuilder();
-        int cols = m.getColumnCount();
-        for (int c = 0; c < cols; c++) {
-            if (c > 0) sb.append(',');
-            sb.append(escapeCsv(m.getColumnName(c)));
-        }
-        sb.append('\n');
-        for (int r = 0; r < m.getRowCount(); r++) {
-            for (int c = 0; c < cols; c++) {
-                if (c > 0) sb.append(',');
-                Object v = m.getValueAt(r, c);
-                sb.append(escapeCsv(v == null ? "" : v.toString()));
-            }
-            sb.append('\n');
-        }
-        return sb.toString();
-    }
-
     // modern small toolbar button
     private JButton smallToolBtn(String tip, String iconPath, Color bg) {
-        Icon ic = loadIcon(iconPath, 16, 16);
+        Icon ic = IconCache.get(iconPath, 16, 16);
         JButton b = new JButton();
         b.setToolTipText(tip);
         b.setPreferredSize(new Dimension(84, 34));
@@ -591,7 +960,7 @@ public MailOrganize() {
 
     // top toolbar button with label
     private JButton createToolbarBtn(String label, String iconPath, Color bg) {
-        Icon ic = loadIcon(iconPath, 18, 18);
+        Icon ic = IconCache.get(iconPath, 18, 18);
         JButton b = new JButton(label, ic);
         b.setFont(BTN_FONT);
         b.setBackground(bg);
@@ -609,71 +978,30 @@ public MailOrganize() {
         return b;
     }
 
-    // Try to load .xls/.xlsx using Apache POI if available; otherwise prompt
+    // .xlsx/.xlsm stream in the background; .xls still goes through POI's in-memory workbook.
+    // excel_row_limit (setting, default 0 = no limit) caps the rows read from either.
     private void loadExcelFile(File f) {
         if (f == null || !f.exists()) return;
-        try (InputStream is = new FileInputStream(f)) {
-            Class<?> wf = Class.forName("org.apache.poi.ss.usermodel.WorkbookFactory");
-            Object wb = wf.getMethod("create", InputStream.class).invoke(null, is);
-            Class<?> wbClass = wb.getClass();
-            Object sheet = wbClass.getMethod("getSheetAt", int.class).invoke(wb, 0);
-            Class<?> sheetClass = sheet.getClass();
-            java.util.List<String[]> rows = new ArrayList<>();
-            java.lang.reflect.Method rowIterM = sheetClass.getMethod("iterator");
-            java.util.Iterator<?> rowIt = (java.util.Iterator<?>) rowIterM.invoke(sheet);
-            Class<?> dataFormatterClass = Class.forName("org.apache.poi.ss.usermodel.DataFormatter");
-            Object df = dataFormatterClass.getDeclaredConstructor().newInstance();
-            while (rowIt.hasNext()) {
-                Object row = rowIt.next();
-                Class<?> rowClass = row.getClass();
-                java.lang.reflect.Method cellIterM = rowClass.getMethod("cellIterator");
-                java.util.Iterator<?> cellIt = (java.util.Iterator<?>) cellIterM.invoke(row);
-                java.util.List<String> cols = new ArrayList<>();
-                while (cellIt.hasNext()) {
-                    Object cell = cellIt.next();
-                    String val = (String) dataFormatterClass.getMethod("formatCellValue", Class.forName("org.apache.poi.ss.usermodel.Cell")).invoke(df, cell);
-                    cols.add(val);
-                }
-                rows.add(cols.toArray(new String[0]));
+        int rowLimit = SettingsDAO.getInt("excel_row_limit", 0);
+        if (XlsxStreamReader.isXlsx(f)) {
+            try {
+                int sheet = chooseSheet(XlsxStreamReader.sheetNames(f));
+                if (sheet >= 0) startImport(new XlsxImportWorker(f, sheet, rowLimit));
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(this, "Failed to load Excel: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
-            tableModel.clear();
-            int maxCols = 0;
-            for (String[] r : rows) if (r.length > maxCols) maxCols = r.length;
-            if (maxCols == 0) maxCols = 1;
-            for (int c = 0; c < maxCols; c++) tableModel.addColumn("C" + (c+1));
-            for (String[] r : rows) tableModel.addRow(r);
-            try { wbClass.getMethod("close").invoke(wb); } catch (Exception ignore) {}
-            try { FileDAO.insertOrUpdate(f); } catch (Exception ignored) {}
-        } catch (ClassNotFoundException cnf) {
-            JOptionPane.showMessageDialog(this, "Apache POI not found. Add org.apache.poi:poi and poi-ooxml to load Excel files.", "Dependency required", JOptionPane.WARNING_MESSAGE);
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Failed to load Excel: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        startImport(new XlsImportWorker(f, rowLimit));
     }
 
-    // load icon helper (classpath or resources)
-    private Icon loadIcon(String resourcePath, int w, int h) {
-        try {
-            URL url = MailOrganize.class.getResource(resourcePath);
-            if (url != null) {
-                try {
-                    BufferedImage img = ImageIO.read(url);
-                    if (img != null) return new ImageIcon(img.getScaledInstance(w, h, Image.SCALE_SMOOTH));
-                } catch (Exception ignored) {}
-                ImageIcon raw = new ImageIcon(url);
-                if (raw.getIconWidth() > 0) return new ImageIcon(raw.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH));
-            }
-            File f = new File(System.getProperty("user.dir") + "/src/main/resources" + resourcePath);
-            if (f.exists()) {
-                try {
-                    BufferedImage img = ImageIO.read(f);
-                    if (img != null) return new ImageIcon(img.getScaledInstance(w, h, Image.SCALE_SMOOTH));
-                } catch (Exception ignored) {}
-                ImageIcon rawFile = new ImageIcon(f.toURI().toURL());
-                if (rawFile.getIconWidth() > 0) return new ImageIcon(rawFile.getImage().getScaledInstance(w, h, Image.SCALE_SMOOTH));
-            }
-        } catch (Exception ignored) {}
-        return null;
+    // Asks which sheet to import when there is more than one; -1 when cancelled or empty.
+    private int chooseSheet(List<String> names) {
+        if (names.isEmpty()) return -1;
+        if (names.size() == 1) return 0;
+        Object choice = JOptionPane.showInputDialog(this, "Sheet to import:", "Import Excel",
+                JOptionPane.PLAIN_MESSAGE, null, names.toArray(), names.get(0));
+        return choice == null ? -1 : names.indexOf(choice);
     }
 
     // quick test frame
@@ -22,16 +22,8 @@ public class NavigationBar extends JPanel {
         left.setOpaque(false);
 
         // Try to load icons from resources (place your icons on the classpath, e.g. src/main/resources/icons/back.png)
-        ImageIcon backIcon = null;
-        ImageIcon forwardIcon = null;
-        java.net.URL backUrl = getClass().getResource("/assets/back.png");
-        java.net.URL forwardUrl = getClass().getResource("/assets/forward.png");
-        if (backUrl != null) {
-            backIcon = new ImageIcon(new ImageIcon(backUrl).getImage().getScaledInstance(16, 16, Image.SCALE_SMOOTH));
-        }
-        if (forwardUrl != null) {
-            forwardIcon = new ImageIcon(new ImageIcon(forwardUrl).getImage().getScaledInstance(16, 16, Image.SCALE_SMOOTH));
-        }
+        Icon backIcon = IconCache.get("/assets/back.png", 16, 16);
+        Icon forwardIcon = IconCache.get("/assets/forward.png", 16, 16);
 
     backBtn = (backIcon != null) ? new JButton(backIcon) : new JButton("←");
         backBtn.setToolTipText("Back");
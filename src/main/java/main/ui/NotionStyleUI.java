@@ -130,42 +130,20 @@ public class NotionStyleUI {
 
         frame.setVisible(true);
 
-        // start background reminder timer to notify about tasks not checked within 24 hours
+        // start the reminder scheduler: it sleeps until the next task deadline instead of polling
         try {
-            java.util.Timer reminderTimer = new java.util.Timer("TaskReminderTimer", true);
-            // Poll frequently (every 10s) so short reminder windows (e.g. 1 minute)
-            // are detected promptly while the app is running. If you prefer lower
-            // CPU usage, increase this value (e.g. 60*1000 for 1 minute, or 3600*1000 for 1 hour).
-            long periodMs = 10_000L; // check every 10 seconds
-            reminderTimer.schedule(new java.util.TimerTask() {
-                @Override public void run() {
-                    try {
-                        // read configurable window (minutes) from settings (default 1440 = 24h)
-                        int windowMinutes = main.db.SettingsDAO.getInt("reminder_window_minutes", 1);
-                        java.util.List<main.db.TaskDAO.TaskRecord> due = main.db.TaskDAO.listTasksNeedingReminderMinutes(windowMinutes);
-                        if (due == null || due.isEmpty()) return;
-                        long now = System.currentTimeMillis() / 1000L;
-                        for (main.db.TaskDAO.TaskRecord tr : due) {
-                            // mark reminder sent immediately to avoid duplicates
-                            main.db.TaskDAO.setLastReminderSent(tr.id, now);
-                            SwingUtilities.invokeLater(() -> {
-                                try {
-                                    String msg = "Reminder: task still open for " + windowMinutes + "+ minutes:\n" + tr.text + "\n\nMark as done?";
-                                    int res = showReminderDialog("Task Reminder", msg);
-                                    if (res == JOptionPane.YES_OPTION) {
-                                        // mark task as checked
-                                        main.db.TaskDAO.update(tr.id, tr.text == null ? "" : tr.text, true, tr.ord);
-                                        // refresh home if currently showing workflow page
-                                        navigateToHome();
-                                    }
-                                } catch (Throwable t) { t.printStackTrace(); }
-                            });
-                        }
-                    } catch (Throwable t) {
-                        t.printStackTrace();
+            main.db.ReminderScheduler.start((tr, windowMinutes) -> SwingUtilities.invokeLater(() -> {
+                try {
+                    String msg = "Reminder: task still open for " + windowMinutes + "+ minutes:\n" + tr.text + "\n\nMark as done?";
+                    int res = showReminderDialog("Task Reminder", msg);
+                    if (res == JOptionPane.YES_OPTION) {
+                        // mark task as checked; queued behind any pending WorkflowPage edit of the same task
+                        main.db.TaskWriteQueue.get().setChecked(tr.id, true);
+                        // refresh home if currently showing workflow page
+                        navigateToHome();
                     }
-                }
-            }, 10_000L, periodMs); // initial delay 10s then repeat
+                } catch (Throwable t) { t.printStackTrace(); }
+            }));
         } catch (Throwable t) {
             t.printStackTrace();
         }
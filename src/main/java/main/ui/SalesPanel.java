@@ -1,7 +1,6 @@
 package main.ui;
 
 import main.db.OpportunityDAO;
-import main.db.ClientDAO;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -35,14 +34,10 @@ public class SalesPanel extends JPanel {
 
     public void refreshData() {
         model.setRowCount(0);
-        List<OpportunityDAO.Opp> opps = OpportunityDAO.listAll();
-        for (OpportunityDAO.Opp o : opps) {
-            String clientName = "-";
-            try {
-                for (ClientDAO.Client c : ClientDAO.listAll()) {
-                    if (c.id == o.clientId) { clientName = c.name; break; }
-                }
-            } catch (Exception ignored) {}
+        // single JOIN query; client name comes back with each opportunity
+        List<OpportunityDAO.PipelineRow> rows = OpportunityDAO.listPipeline(null, 0, 0);
+        for (OpportunityDAO.PipelineRow o : rows) {
+            String clientName = o.clientName == null ? "-" : o.clientName;
             model.addRow(new Object[]{o.id, clientName, o.title, o.value, o.status, o.stage});
         }
     }
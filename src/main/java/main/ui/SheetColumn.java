@@ -0,0 +1,124 @@
+package main.ui;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * One column of the MailOrganize sheet, stored on its own so adding or removing a column never
+ * touches the other columns' rows.
+ * - A column starts out numeric: cells live in a double[] (NaN = empty) for as long as every
+ *   value written is a number in the exact text form it would be shown in ("42", "-3.5"), so
+ *   nothing about the display changes. The first other value turns it into a String[] column
+ *   for good.
+ * - String cells are interned through a per-column dictionary, so repeated values (categories,
+ *   dates, names) share one String. The dictionary is dropped once it holds MAX_DICTIONARY
+ *   distinct values; past that it would cost more than it saves.
+ * - Rows at or past size() read as "", so a new column is empty without allocating per row.
+ */
+final class SheetColumn {
+    private static final int MAX_DICTIONARY = 1 << 16;
+
+    String name;
+    private double[] nums = new double[0]; // null once the column holds strings
+    private String[] strs;                 // null = "" in string mode
+    private HashMap<String, String> dictionary = new HashMap<>();
+    private int size;
+
+    SheetColumn(String name) { this.name = name; }
+
+    int size() { return size; }
+
+    boolean isNumeric() { return nums != null; }
+
+    String get(int row) {
+        if (row >= size) return "";
+        if (nums != null) return format(nums[row]);
+        String s = strs[row];
+        return s == null ? "" : s;
+    }
+
+    void set(int row, String v) {
+        if (v == null) v = "";
+        if (row >= size) {
+            if (v.isEmpty()) return; // already reads as ""
+            reserve(row + 1);
+            size = row + 1;
+        }
+        if (nums != null) {
+            if (v.isEmpty()) { nums[row] = Double.NaN; return; }
+            double d = parse(v);
+            if (!Double.isNaN(d)) { nums[row] = d; return; }
+            toStrings();
+        }
+        strs[row] = v.isEmpty() ? null : intern(v);
+    }
+
+    // Grows the backing array to hold at least n rows; new slots read as "".
+    void reserve(int n) {
+        int cap = nums != null ? nums.length : strs.length;
+        if (n <= cap) return;
+        int newCap = Math.max(n, Math.max(16, cap + (cap >> 1)));
+        if (nums != null) {
+            nums = Arrays.copyOf(nums, newCap);
+            Arrays.fill(nums, cap, newCap, Double.NaN);
+        } else {
+            strs = Arrays.copyOf(strs, newCap);
+        }
+    }
+
+    void removeRow(int row) {
+        if (row >= size) return;
+        int tail = size - row - 1;
+        if (nums != null) {
+            System.arraycopy(nums, row + 1, nums, row, tail);
+            nums[size - 1] = Double.NaN;
+        } else {
+            System.arraycopy(strs, row + 1, strs, row, tail);
+            strs[size - 1] = null;
+        }
+        size--;
+    }
+
+    void clear() {
+        nums = new double[0];
+        strs = null;
+        dictionary = new HashMap<>();
+        size = 0;
+    }
+
+    private void toStrings() {
+        strs = new String[nums.length];
+        for (int i = 0; i < size; i++) if (!Double.isNaN(nums[i])) strs[i] = intern(format(nums[i]));
+        nums = null;
+    }
+
+    private String intern(String v) {
+        if (dictionary == null) return v;
+        String prev = dictionary.putIfAbsent(v, v);
+        if (prev != null) return prev;
+        if (dictionary.size() > MAX_DICTIONARY) dictionary = null;
+        return v;
+    }
+
+    // The value of v if it is a number written exactly as format() would write it, else NaN.
+    static double parse(String v) {
+        int n = v.length();
+        if (n == 0 || n > 24) return Double.NaN;
+        for (int i = 0; i < n; i++) {
+            char c = v.charAt(i);
+            if ((c < '0' || c > '9') && c != '-' && c != '.' && c != 'E') return Double.NaN;
+        }
+        try {
+            double d = Double.parseDouble(v);
+            return v.equals(format(d)) ? d : Double.NaN;
+        } catch (NumberFormatException ex) {
+            return Double.NaN;
+        }
+    }
+
+    static String format(double d) {
+        if (Double.isNaN(d)) return "";
+        if (d == Math.rint(d) && Math.abs(d) < 1e15) return Long.toString((long) d);
+        return Double.toString(d);
+    }
+}
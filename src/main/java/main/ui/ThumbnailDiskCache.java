@@ -0,0 +1,141 @@
+package main.ui;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Pre-scaled thumbnails on disk, so a restart reads small files instead of decoding originals.
+ * - One file per (absolute path, length, lastModified, width, height), named by the SHA-256 of
+ *   that key and a format version: a changed original simply misses and its old entries age out.
+ * - Opaque thumbnails are stored as JPEG, ones with transparency as PNG.
+ * - The directory (solflow.thumbs.dir, default .thumbs next to SolFlow.db) is capped at
+ *   solflow.thumbs.diskMb (default 64). A hit bumps the entry's mtime, and when a write goes
+ *   over the cap the least recently used entries are deleted down to 90% of it.
+ * Failures only cost a cache miss.
+ */
+final class ThumbnailDiskCache {
+    private final File dir;
+    private final long maxBytes;
+    private long bytes = -1; // -1 until the directory has been measured; guarded by this
+
+    ThumbnailDiskCache(File dir, long maxBytes) {
+        this.dir = dir;
+        this.maxBytes = maxBytes;
+    }
+
+    static ThumbnailDiskCache fromSystemProperties() {
+        String dir = System.getProperty("solflow.thumbs.dir",
+                System.getProperty("user.dir") + File.separator + ".thumbs");
+        return new ThumbnailDiskCache(new File(dir), Long.getLong("solflow.thumbs.diskMb", 64) << 20);
+    }
+
+    // bumped when stored thumbnails change shape (v2: fitted, not stretched, to w x h)
+    private static final String VERSION = "v2";
+
+    /** The cached thumbnail of source fitted in w x h, or null. */
+    BufferedImage get(File source, int w, int h) {
+        if (maxBytes <= 0) return null;
+        String name = name(source, w, h);
+        for (String ext : new String[]{".jpg", ".png"}) {
+            File f = new File(dir, name + ext);
+            if (!f.isFile()) continue;
+            try {
+                BufferedImage img = ImageIO.read(f);
+                if (img != null && img.getWidth() <= w && img.getHeight() <= h && (img.getWidth() == w || img.getHeight() == h)) {
+                    f.setLastModified(System.currentTimeMillis());
+                    return img;
+                }
+            } catch (IOException ignored) {}
+            f.delete(); // unreadable or wrong size
+        }
+        return null;
+    }
+
+    void put(File source, int w, int h, BufferedImage thumb) {
+        if (maxBytes <= 0) return;
+        boolean alpha = thumb.getColorModel().hasAlpha() && hasTransparency(thumb);
+        String format = alpha ? "png" : "jpg";
+        BufferedImage out = alpha ? thumb : opaque(thumb);
+        try {
+            Files.createDirectories(dir.toPath());
+            File target = new File(dir, name(source, w, h) + "." + format);
+            // write then rename, so a concurrent reader never sees half a file
+            File tmp = File.createTempFile("thumb", ".tmp", dir);
+            try {
+                if (!ImageIO.write(out, format, tmp)) return;
+                Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                tmp.delete();
+            }
+            added(target.length());
+        } catch (IOException ignored) {}
+    }
+
+    private synchronized void added(long size) {
+        if (bytes < 0) bytes = measure();
+        else bytes += size;
+        if (bytes > maxBytes) evict();
+    }
+
+    private long measure() {
+        long total = 0;
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) total += f.length();
+        return total;
+    }
+
+    private void evict() {
+        File[] files = dir.listFiles();
+        if (files == null) return;
+        long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) { modified[i] = files[i].lastModified(); order[i] = i; }
+        Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+        bytes = measure();
+        long target = maxBytes / 10 * 9;
+        for (int i = 0; i < order.length && bytes > target; i++) {
+            File f = files[order[i]];
+            long len = f.length();
+            if (f.delete()) bytes -= len;
+        }
+    }
+
+    private static boolean hasTransparency(BufferedImage img) {
+        for (int y = 0; y < img.getHeight(); y++)
+            for (int x = 0; x < img.getWidth(); x++)
+                if ((img.getRGB(x, y) >>> 24) != 0xFF) return true;
+        return false;
+    }
+
+    // JPEG writers reject images with an alpha channel
+    private static BufferedImage opaque(BufferedImage img) {
+        if (!img.getColorModel().hasAlpha()) return img;
+        BufferedImage rgb = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(img, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static String name(File source, int w, int h) {
+        String key = VERSION + '|' + source.getAbsolutePath() + '|' + source.length() + '|' + source.lastModified() + '|' + w + 'x' + h;
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(40);
+            for (int i = 0; i < 20; i++) sb.append(Character.forDigit((d[i] >> 4) & 0xF, 16)).append(Character.forDigit(d[i] & 0xF, 16));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
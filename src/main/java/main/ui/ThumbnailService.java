@@ -0,0 +1,214 @@
+package main.ui;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Image thumbnails for file cards, decoded off the EDT.
+ * - request() answers from an LRU memory cache bounded by bytes (solflow.thumbs.memoryMb,
+ *   default 32); on a miss it queues a decode and calls back on the EDT when done, so the
+ *   caller shows a placeholder meanwhile. Concurrent requests for the same thumbnail share
+ *   one decode, and an image that failed to decode is not retried (the last MAX_FAILED
+ *   failures are remembered). Renderers pass the lastModified they already statted, so
+ *   painting never touches the disk, and may pass no callback while one is outstanding.
+ * - Decoding runs on a small daemon pool, newest request first, so the cards just scrolled
+ *   to or just built win over a backlog.
+ * - Thumbnails keep the image's aspect ratio, fitted inside w x h.
+ * - ImageReader source subsampling decodes only every n-th pixel, so a large photo is never
+ *   held at full resolution; the remaining (at most 2x) reduction is a bilinear Graphics2D draw.
+ * - Below the memory cache sits a ThumbnailDiskCache, so after a restart a thumbnail is read
+ *   back from a small pre-scaled file instead of being decoded from the original.
+ * Entries are keyed by path, size and lastModified, so an edited image gets a fresh thumbnail.
+ */
+public final class ThumbnailService {
+    private static final ThumbnailService SHARED = new ThumbnailService(
+            Long.getLong("solflow.thumbs.memoryMb", 32) << 20,
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1)),
+            ThumbnailDiskCache.fromSystemProperties());
+
+    public static ThumbnailService shared() { return SHARED; }
+
+    private static final int MAX_FAILED = 1024;
+
+    private static final class Key {
+        final String path;
+        final long modified;
+        final int w, h;
+        Key(File f, long modified, int w, int h) {
+            this.path = f.getAbsolutePath();
+            this.modified = modified;
+            this.w = w;
+            this.h = h;
+        }
+        @Override public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return modified == k.modified && w == k.w && h == k.h && path.equals(k.path);
+        }
+        @Override public int hashCode() { return Objects.hash(path, modified, w, h); }
+    }
+
+    private final long maxBytes;
+    private long bytes;                                                   // guarded by this
+    private final LinkedHashMap<Key, ImageIcon> cache = new LinkedHashMap<>(64, 0.75f, true); // guarded by this
+    private final Map<Key, List<Consumer<Icon>>> waiting = new HashMap<>(); // EDT only
+    private final Set<Key> failed = Collections.newSetFromMap(new LinkedHashMap<Key, Boolean>() { // EDT only
+        @Override protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) { return size() > MAX_FAILED; }
+    });
+    private final ThreadPoolExecutor exec;
+    private final ThumbnailDiskCache disk; // null = memory only
+
+    ThumbnailService(long maxBytes, int threads, ThumbnailDiskCache disk) {
+        this.maxBytes = maxBytes;
+        this.disk = disk;
+        AtomicInteger n = new AtomicInteger();
+        // a deque drained from the head and fed at the head = LIFO
+        this.exec = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingDeque<Runnable>() {
+            @Override public boolean offer(Runnable r) { return offerFirst(r); }
+        }, r -> {
+            Thread t = new Thread(r, "SolFlow-thumbs-" + n.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+        this.exec.allowCoreThreadTimeOut(true);
+    }
+
+    public static boolean isImage(File f) {
+        String n = f.getName().toLowerCase();
+        return n.endsWith(".png") || n.endsWith(".jpg") || n.endsWith(".jpeg") || n.endsWith(".gif") || n.endsWith(".bmp");
+    }
+
+    /** Same as the other request, statting f for its lastModified. */
+    public Icon request(File f, int w, int h, Consumer<Icon> onLoaded) {
+        if (f == null || !isImage(f)) return null;
+        return request(f, f.lastModified(), w, h, onLoaded);
+    }
+
+    /**
+     * The cached thumbnail of f fitted in w x h, or null. On a miss for an image file the load is
+     * queued and onLoaded (if not null) runs on the EDT with the thumbnail, or with null if it
+     * could not be decoded. lastModified is the caller's stat of f. Call on the EDT.
+     */
+    public Icon request(File f, long lastModified, int w, int h, Consumer<Icon> onLoaded) {
+        if (f == null || !isImage(f)) return null;
+        Key key = new Key(f, lastModified, w, h);
+        synchronized (this) {
+            ImageIcon hit = cache.get(key);
+            if (hit != null) return hit;
+        }
+        if (failed.contains(key)) return null;
+        List<Consumer<Icon>> callbacks = waiting.get(key);
+        if (callbacks != null) {
+            if (onLoaded != null) callbacks.add(onLoaded);
+            return null;
+        }
+        callbacks = new ArrayList<>();
+        if (onLoaded != null) callbacks.add(onLoaded);
+        waiting.put(key, callbacks);
+        exec.execute(() -> {
+            ImageIcon icon = null;
+            try {
+                BufferedImage img = disk != null ? disk.get(f, w, h) : null;
+                if (img == null) {
+                    img = decode(f, w, h);
+                    if (img != null && disk != null) disk.put(f, w, h, img);
+                }
+                if (img != null) {
+                    icon = new ImageIcon(img);
+                    put(key, icon);
+                }
+            } catch (IOException | RuntimeException ignored) {}
+            ImageIcon result = icon;
+            SwingUtilities.invokeLater(() -> {
+                if (result == null) failed.add(key);
+                List<Consumer<Icon>> done = waiting.remove(key);
+                if (done == null) return;
+                for (Consumer<Icon> c : done) c.accept(result);
+            });
+        });
+        return null;
+    }
+
+    private synchronized void put(Key key, ImageIcon icon) {
+        ImageIcon old = cache.put(key, icon);
+        if (old != null) bytes -= sizeOf(old);
+        bytes += sizeOf(icon);
+        Iterator<ImageIcon> it = cache.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            ImageIcon eldest = it.next();
+            if (eldest == icon) break; // always keep the newest
+            bytes -= sizeOf(eldest);
+            it.remove();
+        }
+    }
+
+    private static long sizeOf(ImageIcon icon) {
+        return 4L * icon.getIconWidth() * icon.getIconHeight();
+    }
+
+    /** Decodes f fitted in w x h, subsampling at read time; null if no reader handles it. */
+    static BufferedImage decode(File f, int w, int h) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(f)) {
+            if (in == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int sw = reader.getWidth(0), sh = reader.getHeight(0);
+                int[] fit = fit(sw, sh, w, h);
+                // the largest step that still leaves at least the fitted size
+                int step = Math.max(1, Math.min(sw / fit[0], sh / fit[1]));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param), fit[0], fit[1]);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // the largest size with sw:sh's aspect ratio inside w x h
+    static int[] fit(int sw, int sh, int w, int h) {
+        double s = Math.min(w / (double) Math.max(1, sw), h / (double) Math.max(1, sh));
+        return new int[]{Math.max(1, (int) Math.round(sw * s)), Math.max(1, (int) Math.round(sh * s))};
+    }
+
+    static BufferedImage scale(BufferedImage src, int w, int h) {
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+}
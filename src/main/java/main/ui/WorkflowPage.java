@@ -1,6 +1,7 @@
 package main.ui;
 
 import main.db.TaskDAO;
+import main.db.TaskWriteQueue;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -19,6 +20,7 @@ import java.util.List;
 public class WorkflowPage extends JPanel {
     private final int workflowId; // current workflow id (0 = none)
     private JPanel listContentPanel;
+    private int loadGeneration; // bumped by each initTasks; EDT only
     private JPanel stepsPanel; // Right panel
     private JSplitPane splitPane;
 
@@ -93,24 +95,7 @@ public class WorkflowPage extends JPanel {
         listPanel.add(scrollPane, BorderLayout.CENTER);
 
         // Load tasks from DB (or show placeholder if none) ONLY when requested
-        if (loadTasks) {
-            try {
-                // legacy TaskDAO.listAll() -> global tasks
-                List<TaskDAO.TaskRecord> tasks = (workflowId > 0)
-                        ? TaskDAO.listForWorkflow(workflowId)
-                        : TaskDAO.listAll();
-                if (tasks.isEmpty()) {
-                    addListItemNew("Enter a new task...");
-                } else {
-                    for (TaskDAO.TaskRecord tr : tasks) addListItem(tr);
-                }
-            } catch (Exception ex) {
-                addListItemNew("Enter a new task...");
-            }
-        } else {
-            // new/blank workflow -> show a single empty placeholder
-            addListItemNew("");
-        }
+        initTasks(loadTasks);
 
         // Add button functionality
         addButton.addActionListener(e -> addListItemNew(""));
@@ -204,24 +189,44 @@ public class WorkflowPage extends JPanel {
     // load tasks (legacy behavior) or show blank
     private void initTasks(boolean loadTasks) {
         listContentPanel.removeAll();
-        if (loadTasks) {
-            try {
-                List<TaskDAO.TaskRecord> tasks = (workflowId > 0)
+        int generation = ++loadGeneration;
+        if (!loadTasks) {
+            // new/blank workflow -> show a single empty placeholder
+            addListItemNew("");
+            listContentPanel.revalidate();
+            listContentPanel.repaint();
+            return;
+        }
+        // flushing queued edits can wait on the writer, so it and the query run off the EDT
+        new SwingWorker<List<TaskDAO.TaskRecord>, Void>() {
+            @Override
+            protected List<TaskDAO.TaskRecord> doInBackground() {
+                // make sure queued edits are on disk before re-reading them
+                TaskWriteQueue.get().flush();
+                // legacy TaskDAO.listAll() -> global tasks
+                return (workflowId > 0)
                         ? TaskDAO.listForWorkflow(workflowId)
                         : TaskDAO.listAll();
+            }
+
+            @Override
+            protected void done() {
+                if (generation != loadGeneration) return; // a newer load replaced this one
+                List<TaskDAO.TaskRecord> tasks;
+                try {
+                    tasks = get();
+                } catch (Exception ex) {
+                    tasks = List.of();
+                }
                 if (tasks.isEmpty()) {
                     addListItemNew("Enter a new task...");
                 } else {
                     for (TaskDAO.TaskRecord tr : tasks) addListItem(tr);
                 }
-            } catch (Exception ex) {
-                addListItemNew("Enter a new task...");
+                listContentPanel.revalidate();
+                listContentPanel.repaint();
             }
-        } else {
-            addListItemNew("");
-        }
-        listContentPanel.revalidate();
-        listContentPanel.repaint();
+        }.execute();
     }
 
     // legacy insert; behavior unchanged
@@ -278,7 +283,7 @@ public class WorkflowPage extends JPanel {
                 }
                 // update DB
                 if (tr.id > 0) {
-                    TaskDAO.update(tr.id, newText, checkBox.isSelected(), tr.ord);
+                    TaskWriteQueue.get().update(tr.id, newText, checkBox.isSelected(), tr.ord);
                     tr.text = newText;
                 }
             }
@@ -295,13 +300,13 @@ public class WorkflowPage extends JPanel {
             listContentPanel.revalidate();
             listContentPanel.repaint();
             if (tr.id > 0) {
-                try { TaskDAO.delete(tr.id); } catch (Exception ignored) {}
+                TaskWriteQueue.get().delete(tr.id);
             }
         });
 
         checkBox.addActionListener(e -> {
             if (tr.id > 0) {
-                try { TaskDAO.update(tr.id, tr.text == null ? "" : tr.text, checkBox.isSelected(), tr.ord); } catch (Exception ignored) {}
+                TaskWriteQueue.get().update(tr.id, tr.text == null ? "" : tr.text, checkBox.isSelected(), tr.ord);
             }
             tr.checked = checkBox.isSelected();
         });
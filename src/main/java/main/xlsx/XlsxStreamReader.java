@@ -0,0 +1,122 @@
+package main.xlsx;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming .xlsx reader built on POI's SAX event model (XSSFReader + XSSFSheetXMLHandler).
+ * Rows go straight to a RowSink as the sheet XML is parsed, so memory stays flat no matter how
+ * large the workbook is; only the shared strings table is loaded (read-only) up front.
+ * Cells are formatted like Excel shows them (DataFormatter) and placed by column letter, so a
+ * blank cell keeps the cells to its right in their columns. Rows with no cells are skipped.
+ */
+public final class XlsxStreamReader {
+    private XlsxStreamReader() {}
+
+    /** Receives each row in sheet order; return false to stop reading. */
+    public interface RowSink {
+        boolean row(int rowIndex, String[] cells);
+    }
+
+    // thrown out of the SAX callbacks to stop parsing early
+    private static final class Stop extends RuntimeException {
+        Stop() { super(null, null, false, false); }
+    }
+
+    public static boolean isXlsx(File f) {
+        String n = f.getName().toLowerCase();
+        return n.endsWith(".xlsx") || n.endsWith(".xlsm");
+    }
+
+    /** Sheet names in workbook order. */
+    public static List<String> sheetNames(File f) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(f, PackageAccess.READ)) {
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) new XSSFReader(pkg).getSheetsData();
+            List<String> names = new ArrayList<>();
+            while (it.hasNext()) {
+                try (InputStream ignored = it.next()) {
+                    names.add(it.getSheetName());
+                }
+            }
+            return names;
+        } catch (OpenXML4JException ex) {
+            throw new IOException("Not a readable .xlsx file: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Streams sheet number sheetIndex (0-based) into sink, stopping after rowLimit rows when
+     * rowLimit > 0. Returns the number of rows delivered.
+     */
+    public static int read(File f, int sheetIndex, int rowLimit, RowSink sink) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(f, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+            for (int i = 0; it.hasNext(); i++) {
+                try (InputStream sheet = it.next()) {
+                    if (i != sheetIndex) continue;
+                    Handler handler = new Handler(rowLimit, sink);
+                    XMLReader xml = XMLHelper.newXMLReader();
+                    xml.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, handler, new DataFormatter(), false));
+                    try {
+                        xml.parse(new InputSource(sheet));
+                    } catch (Stop stop) {
+                        // row limit reached or the sink asked to stop
+                    }
+                    return handler.delivered;
+                }
+            }
+            throw new IOException("Workbook has no sheet #" + (sheetIndex + 1));
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException ex) {
+            throw new IOException("Failed to read " + f.getName() + ": " + ex.getMessage(), ex);
+        }
+    }
+
+    private static final class Handler implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final int rowLimit;
+        private final RowSink sink;
+        private final ArrayList<String> cells = new ArrayList<>();
+        int delivered;
+
+        Handler(int rowLimit, RowSink sink) { this.rowLimit = rowLimit; this.sink = sink; }
+
+        @Override public void startRow(int rowNum) { cells.clear(); }
+
+        @Override public void endRow(int rowNum) {
+            if (cells.isEmpty()) return;
+            String[] row = cells.toArray(new String[0]);
+            for (int i = 0; i < row.length; i++) if (row[i] == null) row[i] = "";
+            delivered++;
+            if (!sink.row(rowNum, row) || (rowLimit > 0 && delivered >= rowLimit)) throw new Stop();
+        }
+
+        @Override public void cell(String ref, String formattedValue, XSSFComment comment) {
+            int col = ref == null ? cells.size() : new CellReference(ref).getCol();
+            while (cells.size() <= col) cells.add(null);
+            cells.set(col, formattedValue == null ? "" : formattedValue);
+        }
+
+        @Override public void headerFooter(String text, boolean isHeader, String tagName) {}
+    }
+}
@@ -0,0 +1,96 @@
+package main;
+
+import main.csv.CsvReader;
+import main.csv.ParallelCsvReader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Throughput of ParallelCsvReader per worker count, against the single-threaded CsvReader.
+ * The generated file has quoted commas, doubled quotes, quoted line breaks and literal quotes in
+ * unquoted fields (5" screen) so segment splitting is exercised; every run is checked
+ * record-for-record against the sequential parse.
+ * Usage: CsvParallelBenchmark [megabytes=256] [file.csv]
+ */
+public class CsvParallelBenchmark {
+    public static void main(String[] args) throws Exception {
+        int mb = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        File file;
+        boolean temp = args.length < 2;
+        if (temp) {
+            file = File.createTempFile("solflow-csv-bench", ".csv");
+            generate(file, (long) mb << 20);
+        } else {
+            file = new File(args[1]);
+        }
+        try {
+            double size = file.length() / (double) (1 << 20);
+            long[] expected = {0, 0}; // records, hash
+            long t0 = System.nanoTime();
+            try (CsvReader r = CsvReader.open(file)) {
+                String[] rec;
+                while ((rec = r.next()) != null) {
+                    expected[0]++;
+                    expected[1] = expected[1] * 31 + Arrays.hashCode(rec);
+                }
+            }
+            double seqSec = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("file %.1f MB, %d records, %d cores%n", size, expected[0], Runtime.getRuntime().availableProcessors());
+            System.out.printf("%-22s %8s %10s %8s%n", "reader", "workers", "MB/s", "speedup");
+            System.out.printf("%-22s %8d %10.1f %8s%n", "CsvReader", 1, size / seqSec, "1.00x");
+
+            int max = Math.max(2, Runtime.getRuntime().availableProcessors());
+            for (int workers = 1; workers <= max; workers *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(workers);
+                try {
+                    long[] got = {0, 0};
+                    long t1 = System.nanoTime();
+                    new ParallelCsvReader(pool, ParallelCsvReader.DEFAULT_SEGMENT_BYTES).read(file, (rows, done) -> {
+                        for (String[] rec : rows) {
+                            got[0]++;
+                            got[1] = got[1] * 31 + Arrays.hashCode(rec);
+                        }
+                        return true;
+                    });
+                    double sec = (System.nanoTime() - t1) / 1e9;
+                    String check = got[0] == expected[0] && got[1] == expected[1] ? "" : "  MISMATCH";
+                    System.out.printf("%-22s %8d %10.1f %7.2fx%s%n", "ParallelCsvReader", workers, size / sec, seqSec / sec, check);
+                } finally {
+                    pool.shutdown();
+                }
+                if (workers < max && workers * 2 > max) workers = max / 2; // always finish on max
+            }
+        } finally {
+            if (temp && !file.delete()) file.deleteOnExit();
+        }
+    }
+
+    private static void generate(File f, long bytes) throws IOException {
+        Random rnd = new Random(3);
+        String[] words = {"Paycheck", "Acme Inc.", "Salary", "Monthly Rent", "Housing", "Starbucks", "Concert Tickets"};
+        try (BufferedWriter w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), StandardCharsets.UTF_8), 1 << 16)) {
+            long written = 0;
+            StringBuilder sb = new StringBuilder(256);
+            while (written < bytes) {
+                sb.setLength(0);
+                sb.append(words[rnd.nextInt(words.length)]).append(',')
+                  .append("\"$").append(1 + rnd.nextInt(9)).append(',').append(100 + rnd.nextInt(900)).append(".00\",")
+                  .append(rnd.nextInt(40) == 0 ? "5\" screen" : words[rnd.nextInt(words.length)]).append(',')
+                  .append("\"Jan ").append(1 + rnd.nextInt(28)).append(", 2023\",");
+                if (rnd.nextInt(50) == 0) sb.append("\"note with \"\"quotes\"\"\nand a second line\"");
+                else sb.append(rnd.nextInt(100000));
+                sb.append('\n');
+                w.write(sb.toString());
+                written += sb.length();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package main;
+
+import main.csv.CsvReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Throughput of main.csv.CsvReader against the two parsers it replaced: MailOrganize.parseCsvLine
+ * (char loop per line) and DashboardUI.loadTableData (look-ahead regex split per line).
+ * Both legacy versions are copied verbatim below. Neither handles quoted line breaks, so the
+ * inputs have none.
+ * Usage: CsvParserBenchmark [megabytes=16]
+ */
+public class CsvParserBenchmark {
+    private interface Parser {
+        long parse(String csv) throws IOException; // returns the number of fields, to keep the JIT honest
+    }
+
+    public static void main(String[] args) throws Exception {
+        int mb = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        String narrow = generate(mb << 20, 6, new Random(7));
+        // the regex split rescans the rest of the line at every comma, so keep the wide input small
+        String wide = generate(Math.max(1, mb / 8) << 20, 200, new Random(11));
+
+        Parser reader = csv -> {
+            long n = 0;
+            try (CsvReader r = CsvReader.forString(csv)) {
+                String[] rec;
+                while ((rec = r.next()) != null) n += rec.length;
+            }
+            return n;
+        };
+        Parser charLoop = csv -> {
+            long n = 0;
+            try (BufferedReader br = new BufferedReader(new StringReader(csv))) {
+                String line;
+                while ((line = br.readLine()) != null) n += parseCsvLine(line).length;
+            }
+            return n;
+        };
+        Parser regex = csv -> {
+            long n = 0;
+            try (BufferedReader br = new BufferedReader(new StringReader(csv))) {
+                String line;
+                while ((line = br.readLine()) != null) n += line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1).length;
+            }
+            return n;
+        };
+
+        System.out.printf("%-22s %-28s %10s %10s %14s%n", "input", "parser", "MB", "MB/s", "fields");
+        for (String[] in : new String[][]{{"6 columns", narrow}, {"200 columns", wide}}) {
+            run(in[0], "CsvReader", reader, in[1]);
+            run(in[0], "MailOrganize.parseCsvLine", charLoop, in[1]);
+            run(in[0], "DashboardUI regex split", regex, in[1]);
+        }
+    }
+
+    private static void run(String input, String name, Parser p, String csv) throws IOException {
+        double mb = csv.length() / (double) (1 << 20); // chars; the inputs are ASCII
+        p.parse(csv); // warm-up
+        int reps = 3;
+        long fields = 0;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < reps; i++) fields = p.parse(csv);
+        double sec = (System.nanoTime() - t0) / 1e9;
+        System.out.printf("%-22s %-28s %10.1f %10.1f %14d%n", input, name, mb, mb * reps / sec, fields);
+    }
+
+    // income.csv-like rows: plain words, money with and without quoted thousands, quoted dates
+    private static String generate(int targetChars, int columns, Random rnd) {
+        String[] words = {"Paycheck", "Acme Inc.", "Salary", "Side Hustle", "Monthly Rent", "Housing", "Neutral", "Starbucks"};
+        StringBuilder sb = new StringBuilder(targetChars + 4096);
+        while (sb.length() < targetChars) {
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) sb.append(',');
+                switch (c % 4) {
+                    case 0: sb.append(words[rnd.nextInt(words.length)]); break;
+                    case 1: sb.append("\"$").append(1 + rnd.nextInt(9)).append(',').append(100 + rnd.nextInt(900)).append(".00\""); break;
+                    case 2: sb.append("\"Jan ").append(1 + rnd.nextInt(28)).append(", 2023\""); break;
+                    default: sb.append("\"say \"\"hi\"\"\""); break;
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // verbatim copy of the old MailOrganize.parseCsvLine
+    private static String[] parseCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cur = new StringBuilder();
+        boolean inQuote = false;
+        for (int i=0;i<line.length();i++) {
+            char ch = line.charAt(i);
+            if (ch == '"') {
+                if (inQuote && i+1 < line.length() && line.charAt(i+1) == '"') {
+                    cur.append('"'); i++;
+                } else inQuote = !inQuote;
+            } else if (ch == ',' && !inQuote) {
+                cells.add(cur.toString());
+                cur.setLength(0);
+            } else cur.append(ch);
+        }
+        cells.add(cur.toString());
+        return cells.toArray(new String[0]);
+    }
+}
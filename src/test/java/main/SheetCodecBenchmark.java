@@ -0,0 +1,130 @@
+package main;
+
+import main.db.SheetCodec;
+import main.db.SheetDAO;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compression ratio and encode/decode throughput of SheetCodec on income.csv/expenses.csv-shaped data.
+ * Usage: SheetCodecBenchmark [megabytes=8] [file.csv ...]
+ * Besides the whole sheet it measures ROW_BLOCK_SIZE-row blocks, which is how MailOrganize saves.
+ */
+public class SheetCodecBenchmark {
+    private static final String[] INCOME_SOURCES = {"Paycheck", "Illustration Work", "Freelance Design", "Dividends", "Tutoring", "Refund"};
+    private static final String[] PAYERS = {"Acme Inc.", "James W.", "Globex", "Initech", "Vanguard", "Various"};
+    private static final String[] INCOME_KINDS = {"Salary", "Side Hustle", "Investment", "Other"};
+    private static final String[] EXPENSES = {"Monthly Transit Pass", "Monthly Rent", "Concert Tickets", "New Shoes", "Gift Card for Kevin", "Groceries", "Electric Bill"};
+    private static final String[] CATEGORIES = {"Transportation", "Housing", "Entertainment", "Clothing", "Gifting", "Food", "Utilities"};
+    private static final String[] MOODS = {"Good", "Neutral", "Bad"};
+    private static final String[] VENDORS = {"MTA", "Casey T.", "Various", "Nike", "Starbucks", "Trader Joe's", "ConEd"};
+    private static final String[] MONTHS = {"Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"};
+
+    public static void main(String[] args) throws Exception {
+        int mb = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        List<String[]> inputs = new ArrayList<>();
+        inputs.add(new String[]{"income-shaped " + mb + "MB", synthetic(mb << 20, true)});
+        inputs.add(new String[]{"expenses-shaped " + mb + "MB", synthetic(mb << 20, false)});
+        for (int i = 1; i < args.length; i++) {
+            File f = new File(args[i]);
+            inputs.add(new String[]{f.getName(), new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8)});
+        }
+        for (String name : new String[]{"income.csv", "expenses.csv"}) {
+            File f = new File(name);
+            if (args.length <= 1 && f.isFile()) inputs.add(new String[]{name, new String(Files.readAllBytes(f.toPath()), StandardCharsets.UTF_8)});
+        }
+
+        System.out.printf("%-26s %-6s %5s %12s %12s %8s %10s %10s%n", "input", "unit", "level", "raw bytes", "stored", "ratio", "enc MB/s", "dec MB/s");
+        for (String[] in : inputs) {
+            for (int level : new int[]{1, 6, 9}) {
+                run(in[0], "sheet", level, List.of(in[1]));
+                run(in[0], "blocks", level, blocks(in[1]));
+            }
+        }
+    }
+
+    private static void run(String name, String unit, int level, List<String> parts) throws Exception {
+        List<byte[]> raw = new ArrayList<>();
+        long rawBytes = 0;
+        for (String p : parts) {
+            byte[] b = p.getBytes(StandardCharsets.UTF_8);
+            raw.add(b);
+            rawBytes += b.length;
+        }
+        // repeat small inputs so the timings mean something
+        int reps = (int) Math.max(1, Math.min(1000, (32L << 20) / Math.max(1, rawBytes)));
+
+        List<byte[]> packed = new ArrayList<>();
+        for (byte[] b : raw) packed.add(SheetCodec.deflate(b, level)); // warm-up
+        long storedBytes = 0;
+        for (int i = 0; i < raw.size(); i++) {
+            // what SheetCodec actually stores: small or incompressible parts stay TEXT
+            boolean keep = raw.get(i).length >= 512 && packed.get(i).length < raw.get(i).length;
+            storedBytes += keep ? packed.get(i).length : raw.get(i).length;
+        }
+
+        long t0 = System.nanoTime();
+        for (int r = 0; r < reps; r++) for (byte[] b : raw) SheetCodec.deflate(b, level);
+        double encSec = (System.nanoTime() - t0) / 1e9;
+
+        for (byte[] p : packed) SheetCodec.inflate(p); // warm-up
+        long t1 = System.nanoTime();
+        for (int r = 0; r < reps; r++) for (byte[] p : packed) SheetCodec.inflate(p);
+        double decSec = (System.nanoTime() - t1) / 1e9;
+
+        double mbTotal = rawBytes * (double) reps / (1 << 20);
+        System.out.printf("%-26s %-6s %5d %12d %12d %7.2fx %10.1f %10.1f%n", name, unit, level, rawBytes, storedBytes,
+                rawBytes / (double) Math.max(1, storedBytes), mbTotal / encSec, mbTotal / decSec);
+    }
+
+    // Splits csv into ROW_BLOCK_SIZE-line blocks like SheetDAO.saveSheetDelta stores them.
+    private static List<String> blocks(String csv) {
+        List<String> out = new ArrayList<>();
+        int start = 0, lines = 0;
+        for (int i = 0; i < csv.length(); i++) {
+            if (csv.charAt(i) == '\n' && ++lines == SheetDAO.ROW_BLOCK_SIZE) {
+                out.add(csv.substring(start, i + 1));
+                start = i + 1;
+                lines = 0;
+            }
+        }
+        if (start < csv.length()) out.add(csv.substring(start));
+        return out;
+    }
+
+    private static String synthetic(int targetBytes, boolean income) {
+        Random rnd = new Random(42);
+        StringBuilder sb = new StringBuilder(targetBytes + 256);
+        while (sb.length() < targetBytes) {
+            String amount = money(rnd);
+            String date = "\"\"\"" + MONTHS[rnd.nextInt(12)] + " " + (1 + rnd.nextInt(28)) + ", " + (2021 + rnd.nextInt(4)) + "\"\"\"";
+            if (income) {
+                sb.append(pick(rnd, INCOME_SOURCES)).append(',').append(pick(rnd, PAYERS)).append(',')
+                        .append(amount).append(',').append(pick(rnd, INCOME_KINDS)).append(',').append(date).append(",\n");
+            } else {
+                int k = rnd.nextInt(EXPENSES.length);
+                sb.append(EXPENSES[k]).append(',').append(amount).append(',').append(CATEGORIES[k]).append(',')
+                        .append(pick(rnd, MOODS)).append(',').append(VENDORS[k]).append(',').append(date).append(",\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    // "$137.00", or the quoted """$2,500.00""" form the exports use for thousands
+    private static String money(Random rnd) {
+        int cents = rnd.nextInt(400000);
+        int dollars = cents / 100;
+        String frac = String.format("%02d", cents % 100);
+        if (dollars < 1000) return "$" + dollars + "." + frac;
+        return "\"\"\"$" + (dollars / 1000) + "," + String.format("%03d", dollars % 1000) + "." + frac + "\"\"\"";
+    }
+
+    private static String pick(Random rnd, String[] values) {
+        return values[rnd.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,128 @@
+package main.csv;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    private static List<List<String>> parse(String csv) throws IOException {
+        try (CsvReader r = CsvReader.forString(csv)) {
+            return drain(r);
+        }
+    }
+
+    private static List<List<String>> drain(CsvReader r) throws IOException {
+        List<List<String>> out = new ArrayList<>();
+        String[] rec;
+        while ((rec = r.next()) != null) out.add(Arrays.asList(rec));
+        return out;
+    }
+
+    private static List<String> row(String... fields) { return Arrays.asList(fields); }
+
+    @Test
+    public void plainRecordsWithEveryLineEnding() throws IOException {
+        assertEquals(List.of(row("a", "b"), row("c", "d"), row("e", "f"), row("g", "h")),
+                parse("a,b\r\nc,d\ne,f\rg,h"));
+    }
+
+    @Test
+    public void quotedFieldKeepsDelimitersAndCrlf() throws IOException {
+        assertEquals(List.of(row("1", "line one\r\nline two, still", "x"), row("2", "", "y")),
+                parse("1,\"line one\r\nline two, still\",x\r\n2,\"\",y\r\n"));
+    }
+
+    @Test
+    public void doubledQuotesInsideQuotesAreOneQuote() throws IOException {
+        assertEquals(List.of(row("say \"hi\"", "\"")), parse("\"say \"\"hi\"\"\",\"\"\"\""));
+    }
+
+    @Test
+    public void lenientQuoting() throws IOException {
+        // a quote inside an unquoted field is literal; text after a closing quote is kept
+        assertEquals(List.of(row("5\" screen", "ab c", "x")), parse("5\" screen,\"ab\" c,x"));
+        // an unterminated quote runs to end of input
+        assertEquals(List.of(row("a", "open\nto the end")), parse("a,\"open\nto the end"));
+    }
+
+    @Test
+    public void emptyFieldsBlankLinesAndTrailingBreak() throws IOException {
+        assertEquals(List.of(row("", "", ""), row(""), row("x")), parse(",,\n\nx\n"));
+        assertEquals(List.of(row("a", "")), parse("a,"));
+        assertTrue(parse("").isEmpty());
+    }
+
+    @Test
+    public void fieldsLongerThanTheBufferSurvive() throws IOException {
+        char[] big = new char[200_000];
+        Arrays.fill(big, 'z');
+        String plain = new String(big);
+        String quoted = plain.substring(0, 100_000) + "\"\"\n" + plain.substring(100_000);
+        List<List<String>> rows = parse(plain + ",\"" + quoted + "\"\nend");
+        assertEquals(2, rows.size());
+        assertEquals(plain, rows.get(0).get(0));
+        assertEquals(plain.substring(0, 100_000) + "\"\n" + plain.substring(100_000), rows.get(0).get(1));
+        assertEquals(row("end"), rows.get(1));
+    }
+
+    @Test
+    public void openSkipsUtf8BomAndDetectsSemicolons() throws IOException {
+        byte[] body = "name;amount\n\"Müller; Sohn\";12,50\n".getBytes(StandardCharsets.UTF_8);
+        byte[] bytes = new byte[body.length + 3];
+        bytes[0] = (byte) 0xEF; bytes[1] = (byte) 0xBB; bytes[2] = (byte) 0xBF;
+        System.arraycopy(body, 0, bytes, 3, body.length);
+        try (CsvReader r = CsvReader.open(new ByteArrayInputStream(bytes))) {
+            assertEquals(';', r.delimiter());
+            assertEquals(StandardCharsets.UTF_8, r.charset());
+            assertEquals(List.of(row("name", "amount"), row("Müller; Sohn", "12,50")), drain(r));
+        }
+    }
+
+    @Test
+    public void openReadsUtf16WithBom() throws IOException {
+        byte[] bytes = "﻿a\tb\n1\t2\n".getBytes(StandardCharsets.UTF_16LE);
+        try (CsvReader r = CsvReader.open(new ByteArrayInputStream(bytes))) {
+            assertEquals(StandardCharsets.UTF_16LE, r.charset());
+            assertEquals('\t', r.delimiter());
+            assertEquals(List.of(row("a", "b"), row("1", "2")), drain(r));
+        }
+    }
+
+    @Test
+    public void invalidUtf8FallsBackToWindows1252() throws IOException {
+        byte[] bytes = {'c', 'a', 'f', (byte) 0xE9, ',', '1', '\n'};
+        try (CsvReader r = CsvReader.open(new ByteArrayInputStream(bytes))) {
+            assertEquals("windows-1252", r.charset().name());
+            assertEquals(List.of(row("café", "1")), drain(r));
+        }
+    }
+
+    @Test
+    public void delimiterDetection() {
+        assertEquals(',', CsvReader.detectDelimiter("a,b,c\n1,2,3\n"));
+        assertEquals(';', CsvReader.detectDelimiter("a;b;c\n1;2,5;3\n"));
+        assertEquals('\t', CsvReader.detectDelimiter("a\tb\n1\t2\n"));
+        assertEquals('|', CsvReader.detectDelimiter("a|b|c\n1|2|3\n"));
+        // delimiters inside quotes don't count
+        assertEquals(';', CsvReader.detectDelimiter("\"x,y,z\";b\n\"1,2,3\";4\n"));
+        // nothing to go on: comma
+        assertEquals(',', CsvReader.detectDelimiter("single"));
+    }
+
+    @Test
+    public void explicitDelimiterOnAReader() throws IOException {
+        try (CsvReader r = new CsvReader(new StringReader("a|\"b|c\"\n"), '|')) {
+            assertEquals(List.of(row("a", "b|c")), drain(r));
+            assertEquals(1, r.recordsRead());
+        }
+    }
+}
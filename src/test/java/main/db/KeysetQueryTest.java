@@ -0,0 +1,84 @@
+package main.db;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class KeysetQueryTest {
+    @BeforeClass
+    public static void initDatabase() {
+        Database.init();
+    }
+
+    @Before
+    public void clearTasks() throws Exception {
+        Database.inTransaction(c -> c.createStatement().executeUpdate("DELETE FROM tasks"));
+    }
+
+    // ord values repeat, so only the (ord, id) pair orders rows uniquely
+    private static List<Integer> insertTasks(int n, int workflowId) {
+        List<TaskDAO.TaskRecord> tasks = new ArrayList<>();
+        for (int i = 0; i < n; i++) tasks.add(new TaskDAO.TaskRecord(0, "t" + i, false, i % 3, workflowId, 0L, 0L, 0));
+        List<Integer> ids = new ArrayList<>();
+        for (int id : TaskDAO.insertAll(tasks)) ids.add(id);
+        return ids;
+    }
+
+    @Test
+    public void pagesVisitEveryRowOnceInListOrder() {
+        insertTasks(23, 0);
+        List<Integer> expected = TaskDAO.listAll().stream().map(t -> t.id).collect(Collectors.toList());
+        assertEquals(23, expected.size());
+
+        List<Integer> paged = new ArrayList<>();
+        Page.Cursor cursor = null;
+        int pages = 0;
+        do {
+            Page<TaskDAO.TaskRecord> page = TaskDAO.pageAll(cursor, 5);
+            assertTrue(page.items.size() <= 5);
+            for (TaskDAO.TaskRecord t : page.items) paged.add(t.id);
+            cursor = page.next;
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(expected, paged);
+        assertEquals(5, pages);
+    }
+
+    @Test
+    public void exactMultipleOfThePageSizeEndsWithAnEmptyPage() {
+        insertTasks(10, 0);
+        Page<TaskDAO.TaskRecord> first = TaskDAO.pageAll(null, 5);
+        Page<TaskDAO.TaskRecord> second = TaskDAO.pageAll(first.next, 5);
+        assertTrue(second.hasMore());
+        Page<TaskDAO.TaskRecord> third = TaskDAO.pageAll(second.next, 5);
+        assertTrue(third.items.isEmpty());
+        assertFalse(third.hasMore());
+    }
+
+    @Test
+    public void filterArgumentsAndCursorKeysBindTogether() {
+        insertTasks(7, 1);
+        List<Integer> other = insertTasks(4, 2);
+        List<Integer> streamed = TaskDAO.streamForWorkflow(2).map(t -> t.id).collect(Collectors.toList());
+        assertEquals(TaskDAO.listForWorkflow(2).stream().map(t -> t.id).collect(Collectors.toList()), streamed);
+        assertTrue(streamed.containsAll(other));
+
+        Page<TaskDAO.TaskRecord> first = TaskDAO.pageForWorkflow(1, null, 3);
+        Page<TaskDAO.TaskRecord> second = TaskDAO.pageForWorkflow(1, first.next, 3);
+        for (TaskDAO.TaskRecord t : second.items) assertEquals(1, t.workflowId);
+        assertEquals(3, second.items.size());
+    }
+
+    @Test
+    public void streamPagesThroughMoreThanOnePage() {
+        insertTasks(KeysetQuery.DEFAULT_PAGE_SIZE + 7, 0);
+        assertEquals(KeysetQuery.DEFAULT_PAGE_SIZE + 7, TaskDAO.streamAll().count());
+    }
+}
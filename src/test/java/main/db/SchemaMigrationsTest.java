@@ -0,0 +1,141 @@
+package main.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.*;
+
+public class SchemaMigrationsTest {
+    private File dbFile;
+    private Connection c;
+
+    @Before
+    public void open() throws Exception {
+        dbFile = Files.createTempFile("solflow-migrations", ".db").toFile();
+        c = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
+    }
+
+    @After
+    public void close() throws Exception {
+        c.close();
+        dbFile.delete();
+    }
+
+    @Test
+    public void freshDatabaseGoesStraightToLatest() throws SQLException {
+        assertEquals(0, SchemaMigrations.currentVersion(c));
+        assertEquals(SchemaMigrations.latestVersion(), SchemaMigrations.migrate(c));
+        assertEquals(7, SchemaMigrations.currentVersion(c));
+        assertTrue(hasTable("sheet_blocks"));
+        assertTrue(hasColumn("tasks", "reminder_window_minutes"));
+        assertTrue(c.getAutoCommit());
+    }
+
+    // a database created by the init code that predates user_version: oldest table shapes, real rows
+    @Test
+    public void preVersionedDatabaseIsUpgradedWithItsData() throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.execute("CREATE TABLE tasks (id INTEGER PRIMARY KEY AUTOINCREMENT, text TEXT NOT NULL, checked INTEGER DEFAULT 0, ord INTEGER DEFAULT 0, updated_at INTEGER)");
+            s.execute("CREATE TABLE files (id INTEGER PRIMARY KEY AUTOINCREMENT, path TEXT NOT NULL UNIQUE, name TEXT, size INTEGER, mtime INTEGER, added_at INTEGER)");
+            s.execute("CREATE TABLE sheets (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT UNIQUE, csv TEXT, updated_at INTEGER)");
+            s.execute("CREATE TABLE workflows (id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT NOT NULL, created_at INTEGER, updated_at INTEGER, template INTEGER DEFAULT 0)");
+            s.execute("CREATE TABLE opportunities (id INTEGER PRIMARY KEY AUTOINCREMENT, client_id INTEGER, title TEXT NOT NULL, value REAL DEFAULT 0, " +
+                    "status TEXT DEFAULT 'prospect', stage TEXT DEFAULT 'in_progress', owner_id INTEGER DEFAULT 0, created_at INTEGER, updated_at INTEGER, workflow_id INTEGER DEFAULT 0)");
+            s.execute("INSERT INTO tasks (text, checked, ord) VALUES ('old task', 1, 3)");
+            s.execute("INSERT INTO sheets (name, csv, updated_at) VALUES ('s', 'a,b\n1,\"x\ny\"\n3,4\n', 1)");
+            s.execute("INSERT INTO opportunities (title, created_at) VALUES ('deal', 42)");
+        }
+
+        assertEquals(7, SchemaMigrations.migrate(c));
+
+        assertTrue(hasColumn("tasks", "workflow_id"));
+        assertTrue(hasColumn("tasks", "created_at"));
+        assertTrue(hasColumn("files", "workflow_id"));
+        assertTrue(hasColumn("workflows", "user_id"));
+        assertTrue(hasColumn("sheets", "header"));
+        assertTrue(hasTable("settings"));
+        assertTrue(hasTable("clients"));
+        assertTrue(hasIndex("idx_tasks_reminder_open"));
+        assertTrue(hasIndex("idx_opportunities_workflow"));
+        assertTrue(hasIndex("idx_clients_name"));
+        try (Statement s = c.createStatement()) {
+            try (ResultSet rs = s.executeQuery("SELECT text, checked, ord, workflow_id FROM tasks")) {
+                assertTrue(rs.next());
+                assertEquals("old task", rs.getString(1));
+                assertEquals(1, rs.getInt(2));
+                assertEquals(3, rs.getInt(3));
+                assertEquals(0, rs.getInt(4));
+            }
+            // v6 backfill: header + 2 records (one with a quoted line break), 2 columns
+            try (ResultSet rs = s.executeQuery("SELECT size_bytes, row_count, col_count, row_blocks FROM sheets")) {
+                assertTrue(rs.next());
+                assertEquals("a,b\n1,\"x\ny\"\n3,4\n".length(), rs.getLong(1));
+                assertEquals(3, rs.getInt(2));
+                assertEquals(2, rs.getInt(3));
+                assertEquals(0, rs.getInt(4));
+            }
+            // v5: NULL updated_at would never match a keyset comparison
+            try (ResultSet rs = s.executeQuery("SELECT updated_at FROM opportunities")) {
+                assertTrue(rs.next());
+                assertEquals(42, rs.getLong(1));
+            }
+        }
+    }
+
+    @Test
+    public void migrateIsANoOpOnceCurrent() throws SQLException {
+        SchemaMigrations.migrate(c);
+        try (Statement s = c.createStatement()) {
+            s.execute("INSERT INTO settings (key, value) VALUES ('k', 'v')");
+        }
+        assertEquals(7, SchemaMigrations.migrate(c));
+        try (Statement s = c.createStatement(); ResultSet rs = s.executeQuery("SELECT value FROM settings WHERE key = 'k'")) {
+            assertTrue(rs.next());
+            assertEquals("v", rs.getString(1));
+        }
+    }
+
+    @Test
+    public void failedStepRollsBackEverything() throws SQLException {
+        // a view named like a baseline table makes CREATE TABLE IF NOT EXISTS a no-op and ALTER fail
+        try (Statement s = c.createStatement()) {
+            s.execute("CREATE VIEW tasks AS SELECT 1 AS text");
+        }
+        try {
+            SchemaMigrations.migrate(c);
+            fail("expected the baseline step to fail");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Schema migration 1"));
+        }
+        assertEquals(0, SchemaMigrations.currentVersion(c));
+        assertFalse(hasTable("users"));
+        assertTrue(c.getAutoCommit());
+    }
+
+    private boolean hasTable(String name) throws SQLException {
+        return exists("SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = '" + name + "'");
+    }
+
+    private boolean hasIndex(String name) throws SQLException {
+        return exists("SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = '" + name + "'");
+    }
+
+    private boolean hasColumn(String table, String column) throws SQLException {
+        return exists("SELECT 1 FROM pragma_table_info('" + table + "') WHERE name = '" + column + "'");
+    }
+
+    private boolean exists(String sql) throws SQLException {
+        try (Statement s = c.createStatement(); ResultSet rs = s.executeQuery(sql)) {
+            return rs.next();
+        }
+    }
+}
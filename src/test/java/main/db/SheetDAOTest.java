@@ -0,0 +1,76 @@
+package main.db;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SheetDAOTest {
+
+    @BeforeClass
+    public static void initDatabase() {
+        Database.init();
+    }
+
+    @Before
+    public void clearSheets() throws Exception {
+        Database.inTransaction(c -> {
+            c.createStatement().executeUpdate("DELETE FROM sheet_blocks");
+            return c.createStatement().executeUpdate("DELETE FROM sheets");
+        });
+    }
+
+    private static String rows(int from, int to) {
+        StringBuilder sb = new StringBuilder();
+        for (int r = from; r < to; r++) sb.append(r).append(",v").append(r).append('\n');
+        return sb.toString();
+    }
+
+    @Test
+    public void newSheetRejectsAPartialDelta() {
+        // 100 rows span blocks 0 and 1, but only block 1 is sent
+        SheetDAO.SheetDelta d = new SheetDAO.SheetDelta("n,v", 100, 2, Map.of(1, rows(64, 100)), false);
+        try {
+            SheetDAO.saveSheetDelta("fresh", d);
+            fail("a brand-new sheet must be saved with a full delta");
+        } catch (SQLException expected) {
+            assertTrue(expected.getMessage().contains("fresh"));
+        }
+        assertTrue(SheetDAO.listSheetMeta().isEmpty());
+    }
+
+    @Test
+    public void csvSheetRejectsAPartialDelta() throws SQLException {
+        int id = SheetDAO.saveSheet("old", "n,v\n0,v0\n");
+        SheetDAO.SheetDelta d = new SheetDAO.SheetDelta("n,v", 1, 2, Map.of(0, rows(0, 1)), false);
+        try {
+            SheetDAO.saveSheetDelta("old", d);
+            fail("a csv sheet must be converted with a full delta");
+        } catch (SQLException expected) {
+            // kept as it was
+        }
+        assertEquals("n,v\n0,v0\n", SheetDAO.loadCsv(id));
+    }
+
+    @Test
+    public void fullSaveThenPartialDeltaRebuildsEveryRow() throws SQLException {
+        int id = SheetDAO.saveSheetDelta("blocks",
+                new SheetDAO.SheetDelta("n,v", 100, 2, Map.of(0, rows(0, 64), 1, rows(64, 100)), true));
+        String edited = rows(64, 99) + "99,changed\n";
+        assertEquals(id, SheetDAO.saveSheetDelta("blocks",
+                new SheetDAO.SheetDelta("n,v", 100, 2, Map.of(1, edited), false)));
+
+        SheetDAO.SheetRecord r = SheetDAO.getSheetById(id);
+        assertTrue(r.rowBlocks);
+        assertEquals("n,v\n" + rows(0, 64) + edited, r.csv);
+        List<SheetDAO.SheetMeta> meta = SheetDAO.listSheetMeta();
+        assertEquals(1, meta.size());
+        assertEquals(101, meta.get(0).rowCount);
+        assertEquals(SheetDAO.utf8Length(r.csv), meta.get(0).sizeBytes);
+    }
+}
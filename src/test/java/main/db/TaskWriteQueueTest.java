@@ -0,0 +1,151 @@
+package main.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TaskWriteQueueTest {
+    // long enough that nothing flushes on its own during a test
+    private static final long NEVER = 600_000L;
+
+    @BeforeClass
+    public static void initDatabase() {
+        Database.init();
+    }
+
+    @Before
+    public void clearTasks() throws Exception {
+        Database.inTransaction(c -> c.createStatement().executeUpdate("DELETE FROM tasks"));
+    }
+
+    @After
+    public void dropTrigger() throws Exception {
+        Database.inTransaction(c -> c.createStatement().executeUpdate("DROP TRIGGER IF EXISTS reject_bad_text"));
+    }
+
+    @Test
+    public void repeatedUpdatesAreCoalescedIntoTheLastOne() {
+        int id = TaskDAO.insert("a", false, 0);
+        TaskWriteQueue q = new TaskWriteQueue(NEVER, 500);
+        q.update(id, "b", false, 1);
+        q.update(id, "c", true, 5);
+        assertEquals(1, q.depth());
+
+        q.flush();
+
+        TaskDAO.TaskRecord t = only(id);
+        assertEquals("c", t.text);
+        assertTrue(t.checked);
+        assertEquals(5, t.ord);
+        TaskWriteQueue.Stats s = q.stats();
+        assertEquals(0, s.depth);
+        assertEquals(2, s.enqueued);
+        assertEquals(1, s.coalesced);
+        assertEquals(1, s.flushes);
+        assertEquals(1, s.flushedOps);
+    }
+
+    @Test
+    public void updateAfterAPendingDeleteIsDropped() {
+        int id = TaskDAO.insert("doomed", false, 0);
+        TaskWriteQueue q = new TaskWriteQueue(NEVER, 500);
+        q.delete(id);
+        q.update(id, "edited after delete", false, 0);
+        assertEquals(1, q.depth());
+
+        q.flush();
+
+        assertTrue(TaskDAO.listByIds(List.of(id)).isEmpty());
+        assertEquals(1, q.stats().coalesced);
+    }
+
+    @Test
+    public void deleteSupersedesAPendingUpdate() {
+        int id = TaskDAO.insert("x", false, 0);
+        TaskWriteQueue q = new TaskWriteQueue(NEVER, 500);
+        q.update(id, "y", false, 0);
+        q.delete(id);
+
+        q.flush();
+
+        assertTrue(TaskDAO.listByIds(List.of(id)).isEmpty());
+    }
+
+    @Test
+    public void setCheckedKeepsAPendingEdit() {
+        int id = TaskDAO.insert("old", false, 0);
+        TaskWriteQueue q = new TaskWriteQueue(NEVER, 500);
+        q.update(id, "new", false, 3);
+        q.setChecked(id, true);
+        assertEquals(1, q.depth());
+
+        q.flush();
+
+        TaskDAO.TaskRecord t = only(id);
+        assertEquals("new", t.text);
+        assertTrue(t.checked);
+        assertEquals(3, t.ord);
+    }
+
+    @Test
+    public void setCheckedAloneLeavesTextAndOrd() {
+        int id = TaskDAO.insert("stored", false, 7);
+        TaskWriteQueue q = new TaskWriteQueue(NEVER, 500);
+        q.setChecked(id, true);
+        q.flush();
+
+        TaskDAO.TaskRecord t = only(id);
+        assertEquals("stored", t.text);
+        assertTrue(t.checked);
+        assertEquals(7, t.ord);
+
+        // a later full update still wins over the flag
+        q.setChecked(id, true);
+        q.update(id, "reopened", false, 7);
+        q.flush();
+        assertFalse(only(id).checked);
+    }
+
+    @Test
+    public void fullBatchFlushesWithoutWaitingForTheLatency() throws InterruptedException {
+        int a = TaskDAO.insert("a", false, 0), b = TaskDAO.insert("b", false, 1);
+        TaskWriteQueue q = new TaskWriteQueue(NEVER, 2);
+        q.update(a, "a2", false, 0);
+        q.update(b, "b2", false, 1);
+        for (int i = 0; i < 100 && q.stats().flushes == 0; i++) Thread.sleep(50);
+
+        assertEquals(1, q.stats().flushes);
+        assertEquals("a2", only(a).text);
+        assertEquals("b2", only(b).text);
+    }
+
+    @Test
+    public void opThatKeepsFailingIsDroppedWithoutHoldingBackTheRest() throws Exception {
+        int good = TaskDAO.insert("good", false, 0), bad = TaskDAO.insert("bad", false, 1);
+        Database.inTransaction(c -> c.createStatement().executeUpdate(
+                "CREATE TRIGGER reject_bad_text BEFORE UPDATE ON tasks WHEN NEW.text = 'poison' BEGIN SELECT RAISE(ABORT, 'rejected'); END"));
+        TaskWriteQueue q = new TaskWriteQueue(NEVER, 500);
+        q.update(good, "good2", false, 0);
+        q.update(bad, "poison", false, 1);
+
+        for (int i = 0; i < TaskWriteQueue.MAX_ATTEMPTS; i++) q.flush();
+
+        assertEquals("good2", only(good).text);
+        assertEquals("bad", only(bad).text);
+        TaskWriteQueue.Stats s = q.stats();
+        assertEquals(0, s.depth);
+        assertEquals(1, s.droppedOps);
+        assertTrue(s.failedFlushes >= TaskWriteQueue.MAX_ATTEMPTS);
+    }
+
+    private static TaskDAO.TaskRecord only(int id) {
+        List<TaskDAO.TaskRecord> rows = TaskDAO.listByIds(List.of(id));
+        assertEquals(1, rows.size());
+        return rows.get(0);
+    }
+}
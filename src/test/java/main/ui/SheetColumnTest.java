@@ -0,0 +1,111 @@
+package main.ui;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SheetColumnTest {
+
+    @Test
+    public void canonicalNumbersStayNumeric() {
+        SheetColumn c = new SheetColumn("amount");
+        String[] values = {"42", "-3.5", "0", "0.1", "1.0E20", "123456789012345"};
+        for (int i = 0; i < values.length; i++) c.set(i, values[i]);
+        assertTrue(c.isNumeric());
+        assertEquals(values.length, c.size());
+        for (int i = 0; i < values.length; i++) assertEquals(values[i], c.get(i));
+    }
+
+    @Test
+    public void nonCanonicalNumbersDemoteAndRoundTrip() {
+        for (String odd : new String[] {"1.0", "007", "1e3", "+5", "-0", "1,5", " 2", "12 kg"}) {
+            SheetColumn c = new SheetColumn("c");
+            c.set(0, "42");
+            c.set(2, "-3.5");
+            c.set(1, odd);
+            assertFalse(odd, c.isNumeric());
+            assertEquals(odd, c.get(1));
+            // values written while numeric keep the text they were shown as
+            assertEquals("42", c.get(0));
+            assertEquals("-3.5", c.get(2));
+        }
+    }
+
+    @Test
+    public void demotionIsForGood() {
+        SheetColumn c = new SheetColumn("c");
+        c.set(0, "x");
+        c.set(0, "5");
+        assertFalse(c.isNumeric());
+        assertEquals("5", c.get(0));
+    }
+
+    @Test
+    public void emptyCellsReadAsEmpty() {
+        SheetColumn c = new SheetColumn("c");
+        assertEquals("", c.get(0));
+        c.set(5, "");
+        assertEquals(0, c.size()); // writing "" past the end allocates nothing
+        c.set(3, "7");
+        assertEquals(4, c.size());
+        assertEquals("", c.get(0));
+        assertEquals("", c.get(10));
+        c.set(3, null);
+        assertEquals("", c.get(3));
+        assertTrue(c.isNumeric());
+
+        c.set(1, "text");
+        c.set(1, "");
+        assertEquals("", c.get(1));
+        assertEquals("", c.get(2));
+    }
+
+    @Test
+    public void removeRowShiftsInBothModes() {
+        SheetColumn nums = new SheetColumn("n");
+        for (int i = 0; i < 4; i++) nums.set(i, Integer.toString(i));
+        nums.removeRow(1);
+        assertEquals(3, nums.size());
+        assertEquals("0", nums.get(0));
+        assertEquals("2", nums.get(1));
+        assertEquals("3", nums.get(2));
+        assertEquals("", nums.get(3));
+
+        SheetColumn strs = new SheetColumn("s");
+        for (int i = 0; i < 4; i++) strs.set(i, "r" + i);
+        strs.removeRow(0);
+        strs.removeRow(9); // past the end: no-op
+        assertEquals(3, strs.size());
+        assertEquals("r1", strs.get(0));
+        assertEquals("r3", strs.get(2));
+        assertEquals("", strs.get(3));
+    }
+
+    @Test
+    public void clearResetsToAnEmptyNumericColumn() {
+        SheetColumn c = new SheetColumn("c");
+        c.set(0, "hello");
+        c.set(40, "world");
+        c.clear();
+        assertEquals(0, c.size());
+        assertTrue(c.isNumeric());
+        assertEquals("", c.get(0));
+        c.set(0, "1.5");
+        assertTrue(c.isNumeric());
+        assertEquals("1.5", c.get(0));
+    }
+
+    @Test
+    public void parseAndFormatAgree() {
+        assertEquals(42.0, SheetColumn.parse("42"), 0);
+        assertEquals(-3.5, SheetColumn.parse("-3.5"), 0);
+        assertTrue(Double.isNaN(SheetColumn.parse("")));
+        assertTrue(Double.isNaN(SheetColumn.parse("1.0")));
+        assertTrue(Double.isNaN(SheetColumn.parse("NaN")));
+        assertTrue(Double.isNaN(SheetColumn.parse("Infinity")));
+        assertEquals("", SheetColumn.format(Double.NaN));
+        assertEquals("3", SheetColumn.format(3.0));
+        assertEquals("1.0E15", SheetColumn.format(1e15));
+        assertEquals("0.25", SheetColumn.format(0.25));
+    }
+}